@@ -0,0 +1,60 @@
+import java.lang.management.ManagementFactory;
+import java.util.LinkedList;
+
+//Measures how much heap the search allocates per node, to check that the hot path stays allocation free.
+//Setting up a board_state allocates once per puzzle, so it is measured separately from the recursion.
+//to run: java allocation_benchmark lightupPuzzles.txt H1 [--board=chars|bits] [--warmup=5]
+public class allocation_benchmark {
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String args[]) {
+        LinkedList<char[][]> problems = backtrack.getProblems(args[0]);
+        String heuristic = args.length >= 2 ? args[1] : "H1";
+        String board = solver_options.get(args, "board", "chars");
+        int warmup = Integer.parseInt(solver_options.get(args, "warmup", "5"));
+
+        long first = allocatedBytes();
+        long overhead = allocatedBytes() - first; // cost of the measurement itself
+
+        for (String solver : new String[] { "backtrack", "forward_checking" }) {
+            for (int w = 0; w < warmup; w++) // let the JIT settle before measuring
+                for (char[][] problem : problems)
+                    search(solver, new solve_context(heuristic, board), board_state.create(board, problem));
+
+            long setupBytes = 0;
+            long searchBytes = 0;
+            long nodes = 0;
+            for (int i = 0; i < problems.size(); i++) {
+                long start = allocatedBytes();
+                solve_context context = new solve_context(heuristic, board);
+                board_state state = board_state.create(board, problems.get(i));
+                long setup = allocatedBytes();
+                int puzzleNodes = search(solver, context, state);
+                long end = allocatedBytes();
+
+                setupBytes += setup - start - overhead;
+                searchBytes += end - setup - overhead;
+                nodes += puzzleNodes;
+                System.out.println(solver + " puzzle " + (i + 1) + ": " + puzzleNodes + " nodes, "
+                        + (setup - start - overhead) + " bytes setup, " + (end - setup - overhead) + " bytes search");
+            }
+            System.out.println(solver + " total: " + nodes + " nodes, " + setupBytes + " bytes setup, " + searchBytes
+                    + " bytes search, " + String.format("%.3f", nodes == 0 ? 0.0 : (double) searchBytes / nodes)
+                    + " bytes/node\n");
+        }
+    }
+
+    private static int search(String solver, solve_context context, board_state state) {
+        if (solver.equals("backtrack"))
+            backtrack.recursiveBacktracking(context, state);
+        else
+            forward_checking.recursiveBacktracking(context, state);
+        return context.nodeCount;
+    }
+
+    private static long allocatedBytes() {
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
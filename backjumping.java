@@ -0,0 +1,172 @@
+//Conflict-directed backjumping with nogood learning, an alternative to the chronological recursion of backtrack and
+//forward_checking (Prosser's FC-CBJ). A level is a trail position: the variable chosen at level L is the L-th
+//assignment on the board_state trail.
+//Every value that fails is explained by board_state.explainFailure (a bulb lit by an earlier bulb, a wall with too
+//many bulbs or too few candidates left, a dark cell that nothing can light any more) and the levels of the
+//explanation join the conflict set of the current level. Values that forward checking removed from the domain are
+//explained the same way, by assigning them and letting the checks fail. Once every value of a variable has failed,
+//the search jumps straight back to the latest level in its conflict set, skipping the levels in between (they had
+//nothing to do with the dead end), and that level inherits the rest of the set.
+//The assignments in an exhausted conflict set can never be part of a solution, so sets of up to MAX_NOGOOD of them
+//are stored as nogoods, and a value that completes a stored nogood fails at once without being searched again.
+//Forced values have no explanation, so backjumping does not combine with propagation (--propagation=mac).
+//to run: java forward_checking lightupPuzzles.txt H3 --backjump=on
+public class backjumping {
+
+    private static final int SOLVED = Integer.MAX_VALUE; // returned instead of a level once the puzzle is solved
+    private static final int MAX_NOGOOD = 4;             // largest conflict set stored as a nogood
+    private static final int MAX_NOGOODS = 1 << 16;      // nogoods kept per search, later ones are dropped
+
+    private final solve_context context;
+    private final board_state state;
+    private final Boolean forwardChecking; // domains from forward_checking.forwardCheck, otherwise both values
+    private final int base;                // level of the first variable chosen by this search
+    private final long[][] conflicts;      // conflict set of each level, bit l stands for level l
+    private final int[] cellAt;            // variable and value chosen at each level
+    private final char[] valueAt;
+
+    private int[][] nogoods = new int[64][]; // literals cell * 2 + 1 for a bulb, cell * 2 for a no-bulb
+    private int nogoodCount = 0;
+    private final int[][] watching;          // nogoods containing each literal
+    private final int[] watchCount;
+
+    private backjumping(solve_context context, board_state state, Boolean forwardChecking) {
+        this.context = context;
+        this.state = state;
+        this.forwardChecking = forwardChecking;
+        int cells = state.rows * state.cols;
+        base = state.getDepth();
+        conflicts = new long[cells + 1][]; // allocated as levels are reached
+        cellAt = new int[cells + 1];
+        valueAt = new char[cells + 1];
+        watching = new int[cells * 2][];
+        watchCount = new int[cells * 2];
+    }
+
+    public static Boolean search(solve_context context, board_state state, Boolean forwardChecking) { // true once
+        return new backjumping(context, state, forwardChecking).recurse() == SOLVED; // the board holds a solution
+    }
+
+    private int recurse() { // SOLVED, or the level to jump back to (-1 when no level can be changed)
+        if (context.isStopped()) // another search on the same puzzle has finished, or a limit ran out
+            return -1;
+        int var = forwardChecking ? forward_checking.selectUnassignedVariable(context, state)
+                : backtrack.selectUnassignedVariable(context, state);
+        if (var < 0)
+            return SOLVED;
+        int level = state.getDepth();
+        long[] conflict = clear(conflictSet(level), level);
+        char[] domain = context.order(var, forwardChecking ? forward_checking.forwardCheck(var, state)
+                : backtrack.orderDomainValues);
+        cellAt[level] = var;
+
+        for (int k = 0; k < 2; k++) {
+            char value;
+            if (k < domain.length)
+                value = domain[k];
+            else // the value forward checking removed, only tried to learn why it fails
+                value = domain[0] == 'b' ? 'n' : 'b';
+            valueAt[level] = value;
+            if (k < domain.length)
+                context.nodeCount++; // we have made a choice for our variable -> increment node count
+            if (!state.assign(var, value) || !state.checkWalls() || !state.checkNoBulbs())
+                state.explainFailure(var, conflict);
+            else if (!completesNogood(var, value, conflict)) {
+                int target = recurse();
+                if (target == SOLVED)
+                    return SOLVED;
+                if (target < level) { // the dead end below does not depend on this level
+                    state.undo();
+                    return target;
+                }
+            }
+            state.undo();
+        }
+
+        conflict[level >>> 6] &= ~(1L << level);
+        int target = latest(conflict, level);
+        if (target >= 0) {
+            long[] inherited = conflictSet(target);
+            for (int w = 0; w <= target >>> 6; w++)
+                inherited[w] |= conflict[w];
+            inherited[target >>> 6] &= ~(1L << target);
+            learn(conflict, level);
+        }
+        return target;
+    }
+
+    private long[] conflictSet(int level) {
+        if (conflicts[level] == null)
+            conflicts[level] = new long[(conflicts.length + 63) >>> 6];
+        return conflicts[level];
+    }
+
+    private static long[] clear(long[] set, int level) { // only levels up to this one are ever set
+        for (int w = 0; w <= level >>> 6; w++)
+            set[w] = 0;
+        return set;
+    }
+
+    private static int latest(long[] set, int level) { // highest level in the set below level, -1 if none
+        if (level <= 0)
+            return -1;
+        int w = (level - 1) >>> 6;
+        long bits = set[w] & (-1L >>> (63 - ((level - 1) & 63))); // levels w * 64 up to level - 1
+        while (bits == 0) {
+            if (--w < 0)
+                return -1;
+            bits = set[w];
+        }
+        return (w << 6) + 63 - Long.numberOfLeadingZeros(bits);
+    }
+
+    private Boolean completesNogood(int var, char value, long[] conflict) { // explains the failure when it does
+        int literal = literal(var, value);
+        for (int n = 0; n < watchCount[literal]; n++) {
+            int[] nogood = nogoods[watching[literal][n]];
+            Boolean complete = true;
+            for (int l : nogood) {
+                int at = state.levelOf(l >>> 1);
+                if (at < base || valueAt[at] != ((l & 1) != 0 ? 'b' : 'n')) {
+                    complete = false;
+                    break;
+                }
+            }
+            if (complete) {
+                for (int l : nogood) {
+                    int at = state.levelOf(l >>> 1);
+                    conflict[at >>> 6] |= 1L << at;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void learn(long[] conflict, int level) { // the assignments of an exhausted conflict set as a nogood
+        int size = 0;
+        for (int w = 0; w <= level >>> 6; w++)
+            size += Long.bitCount(conflict[w]);
+        if (size > MAX_NOGOOD || nogoodCount == MAX_NOGOODS || latest(conflict, base) >= 0)
+            return; // levels before this search are not recorded in cellAt
+        int[] nogood = new int[size];
+        int n = 0;
+        for (int l = latest(conflict, level); l >= 0; l = latest(conflict, l))
+            nogood[n++] = literal(cellAt[l], valueAt[l]);
+        if (nogoodCount == nogoods.length)
+            nogoods = java.util.Arrays.copyOf(nogoods, nogoodCount * 2);
+        nogoods[nogoodCount] = nogood;
+        for (int literal : nogood) {
+            if (watching[literal] == null)
+                watching[literal] = new int[4];
+            else if (watchCount[literal] == watching[literal].length)
+                watching[literal] = java.util.Arrays.copyOf(watching[literal], watchCount[literal] * 2);
+            watching[literal][watchCount[literal]++] = nogoodCount;
+        }
+        nogoodCount++;
+    }
+
+    private static int literal(int cell, char value) {
+        return cell * 2 + (value == 'b' ? 1 : 0);
+    }
+}
@@ -0,0 +1,72 @@
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Batch mode of backtrack and forward_checking: the puzzles of a file are solved concurrently on a fork-join pool.
+//Every task has its own solve_context and board_state, so nothing mutable is shared between puzzles. Results are
+//printed in puzzle order as soon as all earlier puzzles are done, with the nodes and time of each puzzle.
+//At most IN_FLIGHT puzzles per thread are read ahead, so a streamed file (see puzzle_reader) is never held in memory
+//as a whole.
+//to run: java backtrack lightupPuzzles.txt H1 --threads=4 (--threads=0 uses every core)
+public class batch_solver {
+
+    private static final int IN_FLIGHT = 4; // puzzles submitted ahead of the one being printed, per thread
+
+    private static class result {
+        char[][] solution;
+        solve_context context; // nodes visited and presolve counts
+        long time; // nanoseconds spent solving this puzzle
+    }
+
+    private static class pending {
+        final char[][] problem;
+        final Future<result> result;
+
+        pending(char[][] problem, Future<result> result) {
+            this.problem = problem;
+            this.result = result;
+        }
+    }
+
+    public static void solveAll(String solver, Iterable<char[][]> problems, solve_context settings, int threads,
+                                result_writer out) {
+        ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        settings.pool = pool; // the components of a decomposed puzzle are searched on the same threads
+        try {
+            ArrayDeque<pending> queue = new ArrayDeque<pending>();
+            int i = 0;
+            for (char[][] problem : problems) {
+                queue.add(new pending(problem, pool.submit(() -> solve(solver, problem, settings))));
+                if (queue.size() >= IN_FLIGHT * pool.getParallelism())
+                    print(queue.poll(), i++, out);
+            }
+            while (!queue.isEmpty())
+                print(queue.poll(), i++, out);
+        } catch (InterruptedException | ExecutionException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static void print(pending p, int i, result_writer out) throws InterruptedException, ExecutionException {
+        result r = p.result.get();
+        out.write(i, p.problem, r.solution, r.context.nodeCount, r.time, r.context);
+    }
+
+    private static result solve(String solver, char[][] problem, solve_context settings) {
+        solve_context context = settings.copy(settings.heuristic, new AtomicBoolean());
+        result r = new result();
+        long startTime = System.nanoTime();
+        if (solver.equals("backtrack"))
+            r.solution = backtrack.backtrackingSearch(problem, context);
+        else
+            r.solution = forward_checking.backtrackingSearch(problem, context);
+        r.time = System.nanoTime() - startTime;
+        r.context = context;
+        return r;
+    }
+}
@@ -0,0 +1,514 @@
+//Bitboard implementation of the search state. Every property of the grid is kept as a bitset, once in row-major order
+//(one run of longs per row) and once in column-major order (one run of longs per column), so that a whole row or
+//column segment can be tested or updated with a few shift/mask operations per 64 cells.
+//Lighting is kept separately for horizontal and vertical rays. At most one bulb may light a segment, so removing a
+//bulb simply clears the segments it lit.
+public class bitboard extends board_state {
+
+    private final char[][] puzzle; // the original puzzle, only used to read wall values
+    private final int wr;          // longs per row
+    private final int wc;          // longs per column
+
+    private final long[] wallR, wallC;
+    private final long[] v0R, v1R, v2R;       // wall values as three bit planes
+    private final long[] bulbR, bulbC;
+    private final long[] noBulbR, noBulbC;     // cells assigned 'n', blocked for bulbs
+    private final long[] unassignedR, unassignedC;
+    private final long[] litHR, litHC;         // lit by a bulb in the same row segment
+    private final long[] litVR, litVC;         // lit by a bulb in the same column segment
+
+    private final int[] trail; // (cell << 1) | 1 if the assignment lit its segments
+    private int depth = 0;
+
+    private long c0, c1, c2; // result of the last neighbour count, as three bit planes
+    private boolean givenConflict = false; // two bulbs of the puzzle itself light each other
+
+    public bitboard(char[][] csp) {
+        super(csp.length, csp[0].length);
+        puzzle = csp;
+        wr = (cols + 63) >>> 6;
+        wc = (rows + 63) >>> 6;
+        wallR = new long[rows * wr];
+        wallC = new long[cols * wc];
+        v0R = new long[rows * wr];
+        v1R = new long[rows * wr];
+        v2R = new long[rows * wr];
+        bulbR = new long[rows * wr];
+        bulbC = new long[cols * wc];
+        noBulbR = new long[rows * wr];
+        noBulbC = new long[cols * wc];
+        unassignedR = new long[rows * wr];
+        unassignedC = new long[cols * wc];
+        litHR = new long[rows * wr];
+        litHC = new long[cols * wc];
+        litVR = new long[rows * wr];
+        litVC = new long[cols * wc];
+        trail = new int[rows * cols + 1];
+
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++) {
+                char c = csp[i][j];
+                if (c >= '0' && c <= '4') {
+                    int value = c - '0';
+                    setBit(wallR, wallC, i, j);
+                    if ((value & 1) != 0)
+                        v0R[i * wr + (j >>> 6)] |= 1L << j;
+                    if ((value & 2) != 0)
+                        v1R[i * wr + (j >>> 6)] |= 1L << j;
+                    if ((value & 4) != 0)
+                        v2R[i * wr + (j >>> 6)] |= 1L << j;
+                } else if (c == 'n')
+                    setBit(noBulbR, noBulbC, i, j);
+                else if (c != 'b')
+                    setBit(unassignedR, unassignedC, i, j);
+            }
+        // bulbs already present in the puzzle are lit permanently (they are never undone), one that is lit by another
+        // makes the puzzle unsolvable (checkWalls() fails)
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (csp[i][j] == 'b') {
+                    if (isLit(i, j)) {
+                        givenConflict = true;
+                        continue;
+                    }
+                    setBit(bulbR, bulbC, i, j);
+                    light(i, j, true);
+                }
+    }
+
+    @Override
+    public Boolean assign(int cell, char value) {
+        int i = cell / cols;
+        int j = cell % cols;
+        clearBit(unassignedR, unassignedC, i, j);
+        if (value == 'b') {
+            if (isLit(i, j)) { // another bulb shares a row or column segment with this one
+                trail[depth++] = cell << 1;
+                return false;
+            }
+            setBit(bulbR, bulbC, i, j);
+            light(i, j, true);
+            trail[depth++] = (cell << 1) | 1;
+        } else {
+            setBit(noBulbR, noBulbC, i, j);
+            trail[depth++] = cell << 1;
+        }
+        return true;
+    }
+
+    @Override
+    public void undo() {
+        int entry = trail[--depth];
+        int i = (entry >>> 1) / cols;
+        int j = (entry >>> 1) % cols;
+        if ((entry & 1) != 0) {
+            light(i, j, false);
+            clearBit(bulbR, bulbC, i, j);
+        }
+        clearBit(noBulbR, noBulbC, i, j);
+        setBit(unassignedR, unassignedC, i, j);
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public Boolean checkWalls() { // a wall is violated if it has too many bulbs, or too few bulbs and open cells
+        if (givenConflict)
+            return false;
+        for (int i = 0; i < rows; i++)
+            for (int w = 0; w < wr; w++) {
+                int idx = i * wr + w;
+                long wall = wallR[idx];
+                if (wall == 0)
+                    continue;
+                countNeighbours(BULBS, i, w);
+                long a0 = c0, a1 = c1, a2 = c2;
+                countNeighbours(BULBS_OR_FREE, i, w);
+                long violated = greater(a0, a1, a2, v0R[idx], v1R[idx], v2R[idx])
+                        | greater(v0R[idx], v1R[idx], v2R[idx], c0, c1, c2);
+                if ((wall & violated) != 0)
+                    return false;
+            }
+        return true;
+    }
+
+    @Override
+    public Boolean checkNoBulbs() { // every unlit 'n' needs an unlit open cell in its row or column segment
+        for (int i = 0; i < rows; i++)
+            for (int w = 0; w < wr; w++) {
+                int idx = i * wr + w;
+                long dark = noBulbR[idx] & ~(litHR[idx] | litVR[idx]);
+                while (dark != 0) {
+                    int j = (w << 6) + Long.numberOfTrailingZeros(dark);
+                    dark &= dark - 1;
+                    if (!anyFree(unassignedR, litHR, litVR, i * wr, segStart(wallR, i * wr, j),
+                            segEnd(wallR, i * wr, wr, cols, j))
+                            && !anyFree(unassignedC, litHC, litVC, j * wc, segStart(wallC, j * wc, i),
+                                    segEnd(wallC, j * wc, wc, rows, i)))
+                        return false;
+                }
+            }
+        return true;
+    }
+
+    @Override
+    public int H1() { // first variable with a single option, otherwise the first unassigned variable
+        for (int i = 0; i < rows; i++)
+            for (int w = 0; w < wr; w++) {
+                long options1 = singleOption(i, w);
+                if (options1 != 0)
+                    return i * cols + (w << 6) + Long.numberOfTrailingZeros(options1);
+            }
+        return firstUnassigned();
+    }
+
+    @Override
+    public int H2() {
+        int best = -1;
+        int bestValue = Integer.MIN_VALUE;
+        for (int i = 0; i < rows; i++)
+            for (int w = 0; w < wr; w++) {
+                long open = unassignedR[i * wr + w];
+                while (open != 0) {
+                    int j = (w << 6) + Long.numberOfTrailingZeros(open);
+                    open &= open - 1;
+                    int currValue = calculateDegree(i, j);
+                    if (currValue > bestValue) {
+                        bestValue = currValue;
+                        best = i * cols + j;
+                    }
+                }
+            }
+        return best;
+    }
+
+    @Override
+    public int H3() {
+        boolean anySingle = false;
+        for (int i = 0; i < rows && !anySingle; i++)
+            for (int w = 0; w < wr && !anySingle; w++)
+                anySingle = singleOption(i, w) != 0;
+        if (!anySingle)
+            return H2(); // every variable has two options, so H1's list is all of them
+
+        int best = -1;
+        int bestDegree = Integer.MIN_VALUE;
+        for (int i = 0; i < rows; i++)
+            for (int w = 0; w < wr; w++) {
+                long options1 = singleOption(i, w);
+                while (options1 != 0) {
+                    int j = (w << 6) + Long.numberOfTrailingZeros(options1);
+                    options1 &= options1 - 1;
+                    int currDegree = calculateDegree(i, j);
+                    if (currDegree > bestDegree) {
+                        bestDegree = currDegree;
+                        best = i * cols + j;
+                    }
+                }
+            }
+        return best;
+    }
+
+    @Override
+    public char[] calculateDomain(int cell) { // same rules as forward_checking.calculateDomain
+        int i = cell / cols;
+        int j = cell % cols;
+        if (isLit(i, j))
+            return DOMAIN_N;
+        if (i - 1 >= 0 && isWall(i - 1, j))
+            return wallDomain(i - 1, j);
+        if (i + 1 < rows && isWall(i + 1, j))
+            return wallDomain(i + 1, j);
+        if (j - 1 >= 0 && isWall(i, j - 1))
+            return wallDomain(i, j - 1);
+        if (j + 1 < cols && isWall(i, j + 1))
+            return wallDomain(i, j + 1);
+        return DOMAIN_BN;
+    }
+
+    @Override
+    public char[][] getAssignment() {
+        char[][] assignment = new char[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (isWall(i, j))
+                    assignment[i][j] = puzzle[i][j];
+                else if (bit(bulbR, i * wr, j))
+                    assignment[i][j] = 'b';
+                else if (bit(noBulbR, i * wr, j))
+                    assignment[i][j] = 'n';
+                else
+                    assignment[i][j] = '_';
+        return assignment;
+    }
+
+    private char[] wallDomain(int wi, int wj) { // same rules as forward_checking.forwardCheckwall
+        int value = puzzle[wi][wj] - '0';
+        int numBulbs = 0;
+        int numUnassigned = 0;
+        if (wi - 1 >= 0) {
+            numBulbs += bulbAt(wi - 1, wj);
+            numUnassigned += freeAt(wi - 1, wj);
+        }
+        if (wi + 1 < rows) {
+            numBulbs += bulbAt(wi + 1, wj);
+            numUnassigned += freeAt(wi + 1, wj);
+        }
+        if (wj - 1 >= 0) {
+            numBulbs += bulbAt(wi, wj - 1);
+            numUnassigned += freeAt(wi, wj - 1);
+        }
+        if (wj + 1 < cols) {
+            numBulbs += bulbAt(wi, wj + 1);
+            numUnassigned += freeAt(wi, wj + 1);
+        }
+        if (numUnassigned == value - numBulbs)
+            return DOMAIN_B;
+        else if (numBulbs == value)
+            return DOMAIN_N;
+        return DOMAIN_BN;
+    }
+
+    private int calculateDegree(int i, int j) { // same value as backtrack.calculateDegree
+        int currDegree = 0;
+        if (i - 1 >= 0 && isWall(i - 1, j))
+            currDegree += unassignedAroundWall(i - 1, j) - 1;
+        if (i + 1 < rows && isWall(i + 1, j))
+            currDegree += unassignedAroundWall(i + 1, j) - 1;
+        if (j - 1 >= 0 && isWall(i, j - 1))
+            currDegree += unassignedAroundWall(i, j - 1) - 1;
+        if (j + 1 < cols && isWall(i, j + 1))
+            currDegree += unassignedAroundWall(i, j + 1) - 1;
+
+        // unassigned variables sharing the row and column segment (minus the variable itself)
+        currDegree += countRange(unassignedR, i * wr, segStart(wallR, i * wr, j), segEnd(wallR, i * wr, wr, cols, j)) - 1;
+        currDegree += countRange(unassignedC, j * wc, segStart(wallC, j * wc, i), segEnd(wallC, j * wc, wc, rows, i)) - 1;
+        return currDegree;
+    }
+
+    private int unassignedAroundWall(int wi, int wj) {
+        int count = 0;
+        if (wi - 1 >= 0 && bit(unassignedR, (wi - 1) * wr, wj))
+            count++;
+        if (wi + 1 < rows && bit(unassignedR, (wi + 1) * wr, wj))
+            count++;
+        if (wj - 1 >= 0 && bit(unassignedR, wi * wr, wj - 1))
+            count++;
+        if (wj + 1 < cols && bit(unassignedR, wi * wr, wj + 1))
+            count++;
+        return count;
+    }
+
+    private long singleOption(int i, int w) { // unassigned cells with one option: lit, or next to a wall that
+                                              // requires a particular assignment (see backtrack.checkwall)
+        int idx = i * wr + w;
+        long open = unassignedR[idx];
+        if (open == 0)
+            return 0;
+        long row = tightWalls(i, w);
+        long adjacent = tightWalls(i - 1, w) | tightWalls(i + 1, w) | (row << 1) | (row >>> 1);
+        if (w > 0)
+            adjacent |= tightWalls(i, w - 1) >>> 63;
+        if (w + 1 < wr)
+            adjacent |= tightWalls(i, w + 1) << 63;
+        return open & (litHR[idx] | litVR[idx] | adjacent);
+    }
+
+    private long tightWalls(int i, int w) { // walls whose bulbs are complete, or whose open cells must all be bulbs
+        if (i < 0 || i >= rows)
+            return 0;
+        int idx = i * wr + w;
+        long wall = wallR[idx];
+        if (wall == 0)
+            return 0;
+        countNeighbours(BULBS, i, w);
+        long bulbsDone = equal(c0, c1, c2, v0R[idx], v1R[idx], v2R[idx]);
+        countNeighbours(BULBS_OR_FREE, i, w);
+        long freeNeeded = equal(c0, c1, c2, v0R[idx], v1R[idx], v2R[idx]);
+        return wall & (bulbsDone | freeNeeded);
+    }
+
+    private int firstUnassigned() {
+        for (int i = 0; i < rows; i++)
+            for (int w = 0; w < wr; w++) {
+                long open = unassignedR[i * wr + w];
+                if (open != 0)
+                    return i * cols + (w << 6) + Long.numberOfTrailingZeros(open);
+            }
+        return -1;
+    }
+
+    // ---------------------------------------------------------------- word-parallel neighbour counting
+
+    private static final int BULBS = 0;
+    private static final int BULBS_OR_FREE = 1;
+
+    private long word(int kind, int i, int w) {
+        if (i < 0 || i >= rows || w < 0 || w >= wr)
+            return 0;
+        int idx = i * wr + w;
+        if (kind == BULBS)
+            return bulbR[idx];
+        return bulbR[idx] | (unassignedR[idx] & ~(litHR[idx] | litVR[idx]));
+    }
+
+    private void countNeighbours(int kind, int i, int w) { // adds the four neighbour planes into c2 c1 c0
+        long centre = word(kind, i, w);
+        long up = word(kind, i - 1, w);
+        long down = word(kind, i + 1, w);
+        long left = (centre << 1) | (word(kind, i, w - 1) >>> 63);
+        long right = (centre >>> 1) | (word(kind, i, w + 1) << 63);
+
+        long s0 = up ^ down ^ left;
+        long s1 = (up & down) | (up & left) | (down & left);
+        c0 = s0 ^ right;
+        long carry = s0 & right;
+        c1 = s1 ^ carry;
+        c2 = s1 & carry;
+    }
+
+    private static long greater(long x0, long x1, long x2, long y0, long y1, long y2) { // x > y, bit by bit
+        long e2 = ~(x2 ^ y2);
+        long e1 = ~(x1 ^ y1);
+        return (x2 & ~y2) | (e2 & x1 & ~y1) | (e2 & e1 & x0 & ~y0);
+    }
+
+    private static long equal(long x0, long x1, long x2, long y0, long y1, long y2) {
+        return ~(x0 ^ y0) & ~(x1 ^ y1) & ~(x2 ^ y2);
+    }
+
+    // ---------------------------------------------------------------- lighting and segment helpers
+
+    private void light(int i, int j, boolean on) { // lights (or clears) the row and column segments of a bulb
+        int left = segStart(wallR, i * wr, j);
+        int right = segEnd(wallR, i * wr, wr, cols, j);
+        int top = segStart(wallC, j * wc, i);
+        int bottom = segEnd(wallC, j * wc, wc, rows, i);
+
+        long rowBit = 1L << i;
+        long colBit = 1L << j;
+        if (on) {
+            setRange(litHR, i * wr, left, right);
+            for (int c = left; c <= right; c++)
+                litHC[c * wc + (i >>> 6)] |= rowBit;
+            setRange(litVC, j * wc, top, bottom);
+            for (int r = top; r <= bottom; r++)
+                litVR[r * wr + (j >>> 6)] |= colBit;
+        } else {
+            clearRange(litHR, i * wr, left, right);
+            for (int c = left; c <= right; c++)
+                litHC[c * wc + (i >>> 6)] &= ~rowBit;
+            clearRange(litVC, j * wc, top, bottom);
+            for (int r = top; r <= bottom; r++)
+                litVR[r * wr + (j >>> 6)] &= ~colBit;
+        }
+    }
+
+    private static int segStart(long[] walls, int base, int pos) { // first position after the closest wall before pos
+        int w = pos >>> 6;
+        long m = walls[base + w] & ((1L << pos) - 1);
+        while (m == 0) {
+            if (w == 0)
+                return 0;
+            m = walls[base + --w];
+        }
+        return (w << 6) + 64 - Long.numberOfLeadingZeros(m);
+    }
+
+    private static int segEnd(long[] walls, int base, int words, int limit, int pos) { // last position before the
+                                                                                       // closest wall after pos
+        int w = pos >>> 6;
+        long m = walls[base + w] & (-2L << pos);
+        while (m == 0) {
+            if (++w == words)
+                return limit - 1;
+            m = walls[base + w];
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(m) - 1;
+    }
+
+    private static void setRange(long[] bits, int base, int lo, int hi) {
+        int wlo = lo >>> 6, whi = hi >>> 6;
+        long first = -1L << lo, last = -1L >>> (63 - (hi & 63));
+        if (wlo == whi)
+            bits[base + wlo] |= first & last;
+        else {
+            bits[base + wlo] |= first;
+            for (int w = wlo + 1; w < whi; w++)
+                bits[base + w] = -1L;
+            bits[base + whi] |= last;
+        }
+    }
+
+    private static void clearRange(long[] bits, int base, int lo, int hi) {
+        int wlo = lo >>> 6, whi = hi >>> 6;
+        long first = -1L << lo, last = -1L >>> (63 - (hi & 63));
+        if (wlo == whi)
+            bits[base + wlo] &= ~(first & last);
+        else {
+            bits[base + wlo] &= ~first;
+            for (int w = wlo + 1; w < whi; w++)
+                bits[base + w] = 0;
+            bits[base + whi] &= ~last;
+        }
+    }
+
+    private static int countRange(long[] bits, int base, int lo, int hi) {
+        int wlo = lo >>> 6, whi = hi >>> 6;
+        long first = -1L << lo, last = -1L >>> (63 - (hi & 63));
+        if (wlo == whi)
+            return Long.bitCount(bits[base + wlo] & first & last);
+        int count = Long.bitCount(bits[base + wlo] & first);
+        for (int w = wlo + 1; w < whi; w++)
+            count += Long.bitCount(bits[base + w]);
+        return count + Long.bitCount(bits[base + whi] & last);
+    }
+
+    private static boolean anyFree(long[] unassigned, long[] litH, long[] litV, int base, int lo, int hi) {
+        int wlo = lo >>> 6, whi = hi >>> 6;
+        for (int w = wlo; w <= whi; w++) {
+            long mask = -1L;
+            if (w == wlo)
+                mask &= -1L << lo;
+            if (w == whi)
+                mask &= -1L >>> (63 - (hi & 63));
+            if ((unassigned[base + w] & ~(litH[base + w] | litV[base + w]) & mask) != 0)
+                return true;
+        }
+        return false;
+    }
+
+    private boolean isLit(int i, int j) {
+        int idx = i * wr + (j >>> 6);
+        return ((litHR[idx] | litVR[idx]) & (1L << j)) != 0;
+    }
+
+    private boolean isWall(int i, int j) {
+        return bit(wallR, i * wr, j);
+    }
+
+    private int bulbAt(int i, int j) {
+        return bit(bulbR, i * wr, j) ? 1 : 0;
+    }
+
+    private int freeAt(int i, int j) {
+        return bit(unassignedR, i * wr, j) && !isLit(i, j) ? 1 : 0;
+    }
+
+    private static boolean bit(long[] bits, int base, int pos) {
+        return (bits[base + (pos >>> 6)] & (1L << pos)) != 0;
+    }
+
+    private void setBit(long[] rowMajor, long[] colMajor, int i, int j) {
+        rowMajor[i * wr + (j >>> 6)] |= 1L << j;
+        colMajor[j * wc + (i >>> 6)] |= 1L << i;
+    }
+
+    private void clearBit(long[] rowMajor, long[] colMajor, int i, int j) {
+        rowMajor[i * wr + (j >>> 6)] &= ~(1L << j);
+        colMajor[j * wc + (i >>> 6)] &= ~(1L << i);
+    }
+}
@@ -0,0 +1,104 @@
+//Common interface of the search states the solvers can run on. The recursion in backtrack and forward_checking only
+//talks to the board through these methods, so the representation can be chosen on the command line:
+//  chars - lighting_state, char[][] grids with incremental lighting (default)
+//  bits  - bitboard, long[] bitsets per row and per column
+//Variables are cells packed as i * cols + j, so that the search itself never allocates.
+public abstract class board_state {
+
+    // shared, read-only domains returned by calculateDomain
+    protected static final char[] DOMAIN_B = { 'b' };
+    protected static final char[] DOMAIN_N = { 'n' };
+    protected static final char[] DOMAIN_BN = { 'b', 'n' };
+
+    public final int rows;
+    public final int cols;
+
+    protected board_state(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    public static board_state create(String board, char[][] csp) {
+        switch (board) {
+            case "chars":
+                return new lighting_state(csp);
+            case "bits":
+                return new bitboard(csp);
+        }
+        throw new IllegalArgumentException("Unknown board type: " + board);
+    }
+
+    public static Boolean isBoard(String board) {
+        return board.equals("chars") || board.equals("bits");
+    }
+
+    public static Boolean supportsPropagation(String board) { // boards that implement enablePropagation()
+        return board.equals("chars");
+    }
+
+    public static Boolean supportsBackjumping(String board) { // boards that implement explainFailure()
+        return board.equals("chars");
+    }
+
+    public static Boolean supportsDecomposition(String board) { // boards that implement restrict()
+        return board.equals("chars");
+    }
+
+    public abstract Boolean assign(int cell, char value); // false if the value breaks the lighting constraint,
+                                                          // undo() must still be called to revert it
+
+    public abstract void undo(); // reverts the most recent assign()
+
+    public abstract int getDepth(); // number of assignments currently on the trail
+
+    public void undoTo(int depth) { // reverts assignments until the trail is depth long again
+        while (getDepth() > depth)
+            undo();
+    }
+
+    public void enablePropagation() { // from now on propagate() deduces the values forced by each assignment
+        throw new UnsupportedOperationException("propagation is not supported by " + getClass().getName());
+    }
+
+    public void restrict(boolean[] variables) { // H1-H3 only choose among these variables from now on (see
+                                                // decomposition), they return -1 once all of them are assigned
+        throw new UnsupportedOperationException("restricting the variables is not supported by "
+                + getClass().getName());
+    }
+
+    public Boolean propagate() { // assigns every forced value, false if a variable is left without a value.
+                                 // The forced values are on the trail like any other assignment.
+        return true;
+    }
+
+    public int levelOf(int cell) { // trail position of the cell's assignment, -1 if unassigned or given by the puzzle
+        throw new UnsupportedOperationException("backjumping is not supported by " + getClass().getName());
+    }
+
+    public void explainFailure(int cell, long[] levels) { // after assign(cell, ...) failed or left a check failing,
+                                                          // sets the bits of the trail positions whose assignments
+                                                          // cannot hold together (see backjumping)
+        throw new UnsupportedOperationException("backjumping is not supported by " + getClass().getName());
+    }
+
+    public int cellsExamined(int check, int cell, char value, Boolean consistent) { // cells a call of the check
+                                                                                     // visited, see metered_state
+        if (check == solve_metrics.LIGHTING) // a new bulb lights its row and column
+            return value == 'b' && consistent ? rows + cols - 1 : 1;
+        return rows * cols; // checkWalls and checkNoBulbs look at the whole grid
+    }
+
+    public abstract Boolean checkWalls(); // every numbered wall can still be satisfied
+
+    public abstract Boolean checkNoBulbs(); // every no-bulb position can still be lit in the future
+
+    public abstract int H1(); // most constrained variable, -1 once every variable is assigned
+
+    public abstract int H2(); // highest degree
+
+    public abstract int H3(); // most constrained variable, ties broken by highest degree
+
+    public abstract char[] calculateDomain(int cell); // forward checking domain of an unassigned variable
+
+    public abstract char[][] getAssignment(); // copy of the current assignment as a char grid
+}
@@ -0,0 +1,105 @@
+//Board that passes every call on to another board. The boards that watch the search (metered_state, traced_state)
+//extend it and override only what they watch, so the search takes exactly the same path with or without them.
+//wrap() adds the ones the solve asks for, and returns the board itself for a plain solve.
+public abstract class board_wrapper extends board_state {
+
+    protected final board_state board;
+
+    protected board_wrapper(board_state board) {
+        super(board.rows, board.cols);
+        this.board = board;
+    }
+
+    public static board_state wrap(board_state board, solve_context context) {
+        if (context.metrics != null)
+            board = new metered_state(board, context.metrics);
+        if (context.trace != null)
+            board = new traced_state(board, context.trace);
+        return board;
+    }
+
+    @Override
+    public Boolean assign(int cell, char value) {
+        return board.assign(cell, value);
+    }
+
+    @Override
+    public void undo() {
+        board.undo();
+    }
+
+    @Override
+    public void undoTo(int depth) {
+        board.undoTo(depth);
+    }
+
+    @Override
+    public int getDepth() {
+        return board.getDepth();
+    }
+
+    @Override
+    public void enablePropagation() {
+        board.enablePropagation();
+    }
+
+    @Override
+    public void restrict(boolean[] variables) {
+        board.restrict(variables);
+    }
+
+    @Override
+    public Boolean propagate() {
+        return board.propagate();
+    }
+
+    @Override
+    public int levelOf(int cell) {
+        return board.levelOf(cell);
+    }
+
+    @Override
+    public void explainFailure(int cell, long[] levels) {
+        board.explainFailure(cell, levels);
+    }
+
+    @Override
+    public int cellsExamined(int check, int cell, char value, Boolean consistent) {
+        return board.cellsExamined(check, cell, value, consistent);
+    }
+
+    @Override
+    public Boolean checkWalls() {
+        return board.checkWalls();
+    }
+
+    @Override
+    public Boolean checkNoBulbs() {
+        return board.checkNoBulbs();
+    }
+
+    @Override
+    public int H1() {
+        return board.H1();
+    }
+
+    @Override
+    public int H2() {
+        return board.H2();
+    }
+
+    @Override
+    public int H3() {
+        return board.H3();
+    }
+
+    @Override
+    public char[] calculateDomain(int cell) {
+        return board.calculateDomain(cell);
+    }
+
+    @Override
+    public char[][] getAssignment() {
+        return board.getAssignment();
+    }
+}
@@ -0,0 +1,423 @@
+import java.util.Arrays;
+
+//A small conflict-driven clause learning SAT solver, used by sat_backend.
+//Variables are 0 .. n - 1, the literal of variable v is 2 * v when positive and 2 * v + 1 when negated.
+//  - two watched literals per clause, so unit propagation only visits clauses whose watch became false
+//  - first-UIP conflict analysis, the learnt clause is added and the search jumps back to its second highest level
+//  - VSIDS: variables in recent conflicts get more activity and are decided first, with their last value (phase saving)
+//  - restarts after 100 * luby(i) conflicts, and the less active half of the learnt clauses is dropped from time to
+//    time (clauses that are the reason of a current assignment are kept)
+public class cdcl_solver {
+
+    private static final byte TRUE = 1;
+    private static final byte FALSE = -1;
+    private static final byte UNASSIGNED = 0;
+
+    private final int numVars;
+    private int[][] clauses = new int[16][];  // original clauses first, then learnt ones
+    private boolean[] learnt = new boolean[16];
+    private boolean[] deleted = new boolean[16];
+    private double[] clauseActivity = new double[16];
+    private int numClauses = 0;
+    private int numLearnt = 0;
+    private double clauseInc = 1;
+    private boolean empty = false;            // an empty clause was added, or the units contradict each other
+
+    private final int[][] watches;            // clauses watching each literal
+    private final int[] watchCount;
+
+    private final byte[] value;               // per variable
+    private final int[] level;
+    private final int[] reason;               // clause that implied the variable, -1 for decisions
+    private final boolean[] phase;            // last value of each variable
+    private final int[] trail;
+    private int trailSize = 0;
+    private int qhead = 0;
+    private int[] trailLim = new int[16];     // trail size at the start of each decision level
+    private int decisionLevel = 0;
+
+    private final double[] activity;
+    private double varInc = 1;
+    private final int[] heap;                 // binary max-heap of variables by activity
+    private final int[] heapIndex;            // position of each variable in the heap, -1 if not in it
+    private int heapSize = 0;
+
+    private final boolean[] seen;
+    private final int[] learntBuffer;
+
+    public long decisions = 0;
+    public long conflicts = 0;
+    public long propagations = 0;
+    public long restarts = 0;
+
+    public cdcl_solver(int numVars) {
+        this.numVars = numVars;
+        watches = new int[2 * numVars][];
+        watchCount = new int[2 * numVars];
+        for (int l = 0; l < 2 * numVars; l++)
+            watches[l] = new int[4];
+        value = new byte[numVars];
+        level = new int[numVars];
+        reason = new int[numVars];
+        phase = new boolean[numVars];
+        trail = new int[numVars];
+        activity = new double[numVars];
+        heap = new int[numVars];
+        heapIndex = new int[numVars];
+        seen = new boolean[numVars];
+        learntBuffer = new int[numVars];
+        Arrays.fill(heapIndex, -1);
+        for (int v = 0; v < numVars; v++)
+            heapInsert(v);
+    }
+
+    public static int literal(int var, boolean positive) {
+        return positive ? 2 * var : 2 * var + 1;
+    }
+
+    public void addClause(int... lits) { // only before solve(), duplicate literals and tautologies are allowed
+        int[] c = Arrays.copyOf(lits, lits.length);
+        Arrays.sort(c);
+        int size = 0;
+        for (int k = 0; k < c.length; k++) {
+            if (size > 0 && c[k] == c[size - 1])
+                continue;
+            if (size > 0 && c[k] == (c[size - 1] ^ 1))
+                return; // always true
+            c[size++] = c[k];
+        }
+        c = Arrays.copyOf(c, size);
+        if (size == 0)
+            empty = true;
+        else if (size == 1) {
+            if (litValue(c[0]) == FALSE)
+                empty = true;
+            else if (litValue(c[0]) == UNASSIGNED)
+                enqueue(c[0], -1);
+        } else
+            attach(c, false);
+    }
+
+    public Boolean solve() { // true with a model in value(), false if the clauses cannot all be satisfied
+        if (empty || propagate() >= 0)
+            return false;
+        long maxLearnt = Math.max(numClauses / 3, 1000);
+        int restart = 0;
+        while (true) {
+            long budget = 100 * luby(restart++);
+            int result = search(budget, maxLearnt);
+            if (result != 0)
+                return result > 0;
+            restarts++;
+            maxLearnt += maxLearnt / 10;
+        }
+    }
+
+    public Boolean value(int var) {
+        return value[var] == TRUE;
+    }
+
+    public int numVars() {
+        return numVars;
+    }
+
+    public int numClauses() {
+        return numClauses - numLearnt;
+    }
+
+    private int search(long budget, long maxLearnt) { // 1 sat, -1 unsat, 0 restart
+        long conflictsHere = 0;
+        while (true) {
+            int confl = propagate();
+            if (confl >= 0) {
+                conflicts++;
+                conflictsHere++;
+                if (decisionLevel == 0)
+                    return -1;
+                int size = analyze(confl);
+                int backLevel = 0;
+                for (int k = 1; k < size; k++) // the literal of the highest level goes second, it will be watched
+                    if (level[learntBuffer[k] >>> 1] > backLevel) {
+                        backLevel = level[learntBuffer[k] >>> 1];
+                        int t = learntBuffer[1];
+                        learntBuffer[1] = learntBuffer[k];
+                        learntBuffer[k] = t;
+                    }
+                cancelUntil(backLevel);
+                if (size == 1)
+                    enqueue(learntBuffer[0], -1);
+                else {
+                    int ci = attach(Arrays.copyOf(learntBuffer, size), true);
+                    bumpClause(ci);
+                    enqueue(learntBuffer[0], ci);
+                }
+                varInc /= 0.95;
+                clauseInc /= 0.999;
+            } else {
+                if (conflictsHere >= budget) {
+                    cancelUntil(0);
+                    return 0;
+                }
+                if (numLearnt - trailSize >= maxLearnt)
+                    reduceLearnt();
+                int var = pickBranchVariable();
+                if (var < 0)
+                    return 1;
+                decisions++;
+                newDecisionLevel();
+                enqueue(literal(var, phase[var]), -1);
+            }
+        }
+    }
+
+    private int propagate() { // index of a conflicting clause, or -1
+        while (qhead < trailSize) {
+            int falseLit = trail[qhead++] ^ 1;
+            propagations++;
+            int[] ws = watches[falseLit];
+            int count = watchCount[falseLit];
+            int i = 0;
+            int j = 0;
+            while (i < count) {
+                int ci = ws[i++];
+                if (deleted[ci])
+                    continue; // dropped lazily
+                int[] c = clauses[ci];
+                if (c[0] == falseLit) {
+                    c[0] = c[1];
+                    c[1] = falseLit;
+                }
+                if (litValue(c[0]) == TRUE) {
+                    ws[j++] = ci;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < c.length; k++)
+                    if (litValue(c[k]) != FALSE) {
+                        c[1] = c[k];
+                        c[k] = falseLit;
+                        watch(c[1], ci);
+                        moved = true;
+                        break;
+                    }
+                if (moved)
+                    continue;
+                ws[j++] = ci;
+                if (litValue(c[0]) == FALSE) {
+                    while (i < count)
+                        ws[j++] = ws[i++];
+                    watchCount[falseLit] = j;
+                    qhead = trailSize;
+                    return ci;
+                }
+                enqueue(c[0], ci);
+            }
+            watchCount[falseLit] = j;
+        }
+        return -1;
+    }
+
+    private int analyze(int confl) { // first UIP clause into learntBuffer, the asserting literal first
+        int size = 1;
+        int pathCount = 0;
+        int p = -1;
+        int index = trailSize - 1;
+        do {
+            if (learnt[confl])
+                bumpClause(confl);
+            int[] c = clauses[confl];
+            for (int k = p < 0 ? 0 : 1; k < c.length; k++) {
+                int v = c[k] >>> 1;
+                if (!seen[v] && level[v] > 0) {
+                    bumpVariable(v);
+                    seen[v] = true;
+                    if (level[v] >= decisionLevel)
+                        pathCount++;
+                    else
+                        learntBuffer[size++] = c[k];
+                }
+            }
+            while (!seen[trail[index] >>> 1])
+                index--;
+            p = trail[index--];
+            confl = reason[p >>> 1];
+            seen[p >>> 1] = false;
+            pathCount--;
+        } while (pathCount > 0);
+        learntBuffer[0] = p ^ 1;
+        for (int k = 1; k < size; k++)
+            seen[learntBuffer[k] >>> 1] = false;
+        return size;
+    }
+
+    private void reduceLearnt() { // drops the less active half of the learnt clauses that are not reasons
+        int[] candidates = new int[numLearnt];
+        int n = 0;
+        for (int ci = 0; ci < numClauses; ci++)
+            if (learnt[ci] && !deleted[ci] && clauses[ci].length > 2 && !locked(ci))
+                candidates[n++] = ci;
+        double[] keys = new double[n];
+        for (int k = 0; k < n; k++)
+            keys[k] = clauseActivity[candidates[k]];
+        Arrays.sort(keys);
+        double median = n > 0 ? keys[n / 2] : 0;
+        for (int k = 0; k < n; k++)
+            if (clauseActivity[candidates[k]] < median) {
+                deleted[candidates[k]] = true;
+                clauses[candidates[k]] = null;
+                numLearnt--;
+            }
+    }
+
+    private boolean locked(int ci) {
+        int v = clauses[ci][0] >>> 1;
+        return reason[v] == ci && litValue(clauses[ci][0]) == TRUE;
+    }
+
+    private int attach(int[] c, boolean isLearnt) {
+        if (numClauses == clauses.length) {
+            clauses = Arrays.copyOf(clauses, 2 * numClauses);
+            learnt = Arrays.copyOf(learnt, 2 * numClauses);
+            deleted = Arrays.copyOf(deleted, 2 * numClauses);
+            clauseActivity = Arrays.copyOf(clauseActivity, 2 * numClauses);
+        }
+        int ci = numClauses++;
+        clauses[ci] = c;
+        learnt[ci] = isLearnt;
+        if (isLearnt)
+            numLearnt++;
+        watch(c[0], ci);
+        watch(c[1], ci);
+        return ci;
+    }
+
+    private void watch(int lit, int ci) {
+        if (watchCount[lit] == watches[lit].length)
+            watches[lit] = Arrays.copyOf(watches[lit], 2 * watchCount[lit]);
+        watches[lit][watchCount[lit]++] = ci;
+    }
+
+    private byte litValue(int lit) {
+        byte v = value[lit >>> 1];
+        return (lit & 1) == 0 ? v : (byte) -v;
+    }
+
+    private void enqueue(int lit, int from) {
+        int v = lit >>> 1;
+        value[v] = (lit & 1) == 0 ? TRUE : FALSE;
+        level[v] = decisionLevel;
+        reason[v] = from;
+        trail[trailSize++] = lit;
+    }
+
+    private void newDecisionLevel() {
+        if (decisionLevel == trailLim.length)
+            trailLim = Arrays.copyOf(trailLim, 2 * decisionLevel);
+        trailLim[decisionLevel++] = trailSize;
+    }
+
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target)
+            return;
+        for (int k = trailSize - 1; k >= trailLim[target]; k--) {
+            int v = trail[k] >>> 1;
+            phase[v] = value[v] == TRUE;
+            value[v] = UNASSIGNED;
+            reason[v] = -1;
+            if (heapIndex[v] < 0)
+                heapInsert(v);
+        }
+        trailSize = trailLim[target];
+        qhead = trailSize;
+        decisionLevel = target;
+    }
+
+    private int pickBranchVariable() {
+        while (heapSize > 0) {
+            int v = heapRemoveMax();
+            if (value[v] == UNASSIGNED)
+                return v;
+        }
+        return -1;
+    }
+
+    private void bumpVariable(int v) {
+        activity[v] += varInc;
+        if (activity[v] > 1e100) { // rescale everything to stay in range
+            for (int u = 0; u < numVars; u++)
+                activity[u] *= 1e-100;
+            varInc *= 1e-100;
+        }
+        if (heapIndex[v] >= 0)
+            heapUp(heapIndex[v]);
+    }
+
+    private void bumpClause(int ci) {
+        clauseActivity[ci] += clauseInc;
+        if (clauseActivity[ci] > 1e20) {
+            for (int k = 0; k < numClauses; k++)
+                clauseActivity[k] *= 1e-20;
+            clauseInc *= 1e-20;
+        }
+    }
+
+    private static long luby(int i) { // 1 1 2 1 1 2 4 1 1 2 1 1 2 4 8 ...
+        int size = 1;
+        int seq = 0;
+        while (size < i + 1) {
+            seq++;
+            size = 2 * size + 1;
+        }
+        while (size - 1 != i) {
+            size = (size - 1) >> 1;
+            seq--;
+            i = i % size;
+        }
+        return 1L << seq;
+    }
+
+    private void heapInsert(int v) {
+        heapIndex[v] = heapSize;
+        heap[heapSize++] = v;
+        heapUp(heapIndex[v]);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        heapSize--;
+        if (heapSize > 0) {
+            heap[0] = heap[heapSize];
+            heapIndex[heap[0]] = 0;
+            heapDown(0);
+        }
+        return top;
+    }
+
+    private void heapUp(int i) {
+        int v = heap[i];
+        while (i > 0 && activity[heap[(i - 1) >> 1]] < activity[v]) {
+            heap[i] = heap[(i - 1) >> 1];
+            heapIndex[heap[i]] = i;
+            i = (i - 1) >> 1;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+
+    private void heapDown(int i) {
+        int v = heap[i];
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]])
+                child++;
+            if (activity[heap[child]] <= activity[v])
+                break;
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = v;
+        heapIndex[v] = i;
+    }
+}
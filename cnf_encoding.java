@@ -0,0 +1,126 @@
+//CNF encoding of a Light Up puzzle for cdcl_solver. Variable c (for every open cell c, packed as i * cols + j) is true
+//when the cell holds a bulb, so the first rows * cols variables map straight back to the grid. The clauses are
+//  - at most one bulb per row or column segment: pairwise for short segments, a sequential counter (with extra
+//    variables after the cells) for long ones
+//  - every open cell is lit: some cell of its row or column segment, itself included, holds a bulb
+//  - every numbered wall has exactly its number of bulbs around it
+//  - bulbs and no-bulbs already in the puzzle are unit clauses
+public class cnf_encoding {
+
+    private static final int PAIRWISE_LIMIT = 6; // longer segments use the sequential counter
+
+    public final segment_index seg;
+    public final cdcl_solver solver;
+
+    public cnf_encoding(char[][] csp) {
+        seg = new segment_index(csp);
+        int cells = seg.rows * seg.cols;
+        int extra = 0;
+        for (int s = 0; s < seg.hCount; s++)
+            extra += counterVariables(seg.hStart[s + 1] - seg.hStart[s]);
+        for (int s = 0; s < seg.vCount; s++)
+            extra += counterVariables(seg.vStart[s + 1] - seg.vStart[s]);
+        solver = new cdcl_solver(cells + extra);
+
+        int next = cells;
+        for (int s = 0; s < seg.hCount; s++)
+            next = atMostOne(seg.hCells, seg.hStart[s], seg.hStart[s + 1], next);
+        for (int s = 0; s < seg.vCount; s++)
+            next = atMostOne(seg.vCells, seg.vStart[s], seg.vStart[s + 1], next);
+
+        for (int cell = 0; cell < cells; cell++) {
+            if (!seg.isOpen(cell)) {
+                solver.addClause(cdcl_solver.literal(cell, false)); // walls never hold bulbs
+                continue;
+            }
+            int h = seg.hSeg[cell];
+            int v = seg.vSeg[cell];
+            int[] lighters = new int[seg.hStart[h + 1] - seg.hStart[h] + seg.vStart[v + 1] - seg.vStart[v]];
+            int n = 0;
+            for (int k = seg.hStart[h]; k < seg.hStart[h + 1]; k++)
+                lighters[n++] = cdcl_solver.literal(seg.hCells[k], true);
+            for (int k = seg.vStart[v]; k < seg.vStart[v + 1]; k++)
+                lighters[n++] = cdcl_solver.literal(seg.vCells[k], true); // the cell itself twice, addClause
+            solver.addClause(lighters);                                    // removes the duplicate
+
+            char value = csp[cell / seg.cols][cell % seg.cols];
+            if (value == 'b' || value == 'n')
+                solver.addClause(cdcl_solver.literal(cell, value == 'b'));
+        }
+
+        for (int w = 0; w < seg.wallCount; w++)
+            exactly(seg.wallValue[w], seg.nbrCells, seg.nbrStart[w], seg.nbrStart[w + 1]);
+    }
+
+    public char[][] decode(char[][] csp) { // the model as a grid, formatted like backtrackingSearch's solutions
+        char[][] solution = new char[seg.rows][seg.cols];
+        for (int i = 0; i < seg.rows; i++)
+            for (int j = 0; j < seg.cols; j++) {
+                int cell = i * seg.cols + j;
+                solution[i][j] = !seg.isOpen(cell) ? csp[i][j] : solver.value(cell) ? 'b' : '_';
+            }
+        return solution;
+    }
+
+    private static int counterVariables(int length) {
+        return length > PAIRWISE_LIMIT ? length - 1 : 0;
+    }
+
+    private int atMostOne(int[] cells, int from, int to, int next) { // returns the next free variable
+        int length = to - from;
+        if (length <= PAIRWISE_LIMIT) {
+            for (int a = from; a < to; a++)
+                for (int b = a + 1; b < to; b++)
+                    solver.addClause(cdcl_solver.literal(cells[a], false), cdcl_solver.literal(cells[b], false));
+            return next;
+        }
+        // s[k] (variable next + k) is true when one of the first k + 1 cells holds a bulb
+        for (int k = 0; k < length; k++) {
+            int x = cells[from + k];
+            if (k < length - 1)
+                solver.addClause(cdcl_solver.literal(x, false), cdcl_solver.literal(next + k, true));
+            if (k > 0) {
+                solver.addClause(cdcl_solver.literal(x, false), cdcl_solver.literal(next + k - 1, false));
+                if (k < length - 1)
+                    solver.addClause(cdcl_solver.literal(next + k - 1, false), cdcl_solver.literal(next + k, true));
+            }
+        }
+        return next + length - 1;
+    }
+
+    private void exactly(int count, int[] cells, int from, int to) { // at most 4 cells, so every subset is listed
+        int n = to - from;
+        if (count > n) {
+            solver.addClause(); // cannot be satisfied
+            return;
+        }
+        for (int mask = 0; mask < 1 << n; mask++) {
+            int size = Integer.bitCount(mask);
+            if (size != count + 1 && size != n - count + 1)
+                continue;
+            int[] clause = new int[size];
+            int k = 0;
+            for (int b = 0; b < n; b++)
+                if ((mask & 1 << b) != 0)
+                    clause[k++] = cells[from + b];
+            if (size == count + 1) // any count + 1 of them cannot all be bulbs
+                for (int c = 0; c < size; c++)
+                    clause[c] = cdcl_solver.literal(clause[c], false);
+            else // any n - count + 1 of them include a bulb
+                for (int c = 0; c < size; c++)
+                    clause[c] = cdcl_solver.literal(clause[c], true);
+            solver.addClause(clause);
+        }
+        if (count + 1 == n - count + 1) { // both kinds have the same size, the loop above only made the first
+            for (int mask = 0; mask < 1 << n; mask++)
+                if (Integer.bitCount(mask) == count + 1) {
+                    int[] clause = new int[count + 1];
+                    int k = 0;
+                    for (int b = 0; b < n; b++)
+                        if ((mask & 1 << b) != 0)
+                            clause[k++] = cdcl_solver.literal(cells[from + b], true);
+                    solver.addClause(clause);
+                }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinTask;
+
+//Splits a puzzle into independent components before searching. Two unassigned cells depend on each other only
+//through a row or column segment (lighting) or a numbered wall, so the components are found with a union-find over
+//the segments:
+//  - an unlit cell joins its row and column segment, since either of them has to light it
+//  - a wall that still needs bulbs joins the segments of its free neighbours
+//Segments that already hold a bulb and lit cells constrain nothing any more, and a wall that has all its bulbs only
+//keeps its other neighbours dark, so none of them join anything. Each component is then searched on its own, with
+//the heuristics restricted to its cells (board_state.restrict), so a dead end in one component never backtracks
+//through the choices made in another. Large components are searched in parallel on the --threads pool (see
+//solve_context.pool), small ones one after the other on a shared board. Without a pool, --threads=1, every component
+//is searched on the calling thread. The solutions of the components are merged into one grid, and the puzzle is unsolvable as soon as
+//one component is. The components share the puzzle's stop flag and node budget (see solve_context).
+//to run: java forward_checking lightupPuzzles.txt H3 --decompose=on
+public class decomposition {
+
+    private static final int PARALLEL_CELLS = 64; // components with fewer variables share one board and one thread
+
+    public static char[][] solve(String solver, char[][] csp, solve_context context) { // formatted like
+        segment_index seg = new segment_index(csp);                                     // backtrackingSearch
+        board_state check = board_state.create(context.board, csp);
+        if (!(check.checkWalls() && check.checkNoBulbs())) // the puzzle itself is already inconsistent
+            return null;
+
+        ArrayList<int[]> components = components(csp, seg);
+        ArrayList<ArrayList<int[]>> tasks = new ArrayList<ArrayList<int[]>>();
+        ArrayList<int[]> small = new ArrayList<int[]>();
+        for (int[] component : components)
+            if (component.length >= PARALLEL_CELLS) {
+                ArrayList<int[]> task = new ArrayList<int[]>(1);
+                task.add(component);
+                tasks.add(task);
+            } else
+                small.add(component);
+        if (!small.isEmpty())
+            tasks.add(small);
+
+        solve_context[] contexts = new solve_context[tasks.size()];
+        char[][][] assignments = new char[tasks.size()][][];
+        ArrayList<ForkJoinTask<?>> work = new ArrayList<ForkJoinTask<?>>(tasks.size());
+        for (int t = 0; t < tasks.size(); t++) {
+            int task = t;
+            work.add(ForkJoinTask.adapt(() -> {
+                contexts[task] = context.copy(context.heuristic, context.stopFlag()); // a cancel() reaches every
+                assignments[task] = solveTask(solver, csp, seg, tasks.get(task), contexts[task]); // component
+                if (assignments[task] == null) // the other components can stop, the puzzle is unsolvable
+                    context.stop();
+            }));
+        }
+        if (context.pool == null || tasks.size() < 2 || tasks.get(0).get(0).length < PARALLEL_CELLS)
+            for (ForkJoinTask<?> task : work)
+                task.invoke(); // runs on this thread
+        else if (ForkJoinTask.getPool() == context.pool) // a batch_solver worker, it helps with its own components
+            ForkJoinTask.invokeAll(work);
+        else
+            context.pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(work)));
+
+        context.nodeCount = 0;
+        for (solve_context c : contexts) {
+            context.nodeCount += c.nodeCount;
+            if (c.metrics != null)
+                c.metrics.merge();
+            if (c.hasTimedOut()) // a component ran out of time or nodes, so nothing is known about the others
+                context.cancel();
+        }
+        for (char[][] assignment : assignments)
+            if (assignment == null)
+                return null;
+        char[][] solution = backtrack.copyArray(csp);
+        for (int t = 0; t < tasks.size(); t++)
+            for (int[] component : tasks.get(t))
+                for (int cell : component)
+                    solution[cell / seg.cols][cell % seg.cols] = assignments[t][cell / seg.cols][cell % seg.cols];
+        backtrack.formatSolution(solution);
+        return solution;
+    }
+
+    public static ArrayList<int[]> components(char[][] csp, segment_index seg) { // the unassigned, unlit cells of
+        int hCount = seg.hCount;                                                   // each component
+        boolean[] lit = new boolean[hCount + seg.vCount]; // segments holding a bulb
+        int cells = seg.rows * seg.cols;
+        for (int cell = 0; cell < cells; cell++)
+            if (valueOf(csp, seg, cell) == 'b') {
+                lit[seg.hSeg[cell]] = true;
+                lit[hCount + seg.vSeg[cell]] = true;
+            }
+
+        int[] parent = new int[lit.length];
+        for (int s = 0; s < parent.length; s++)
+            parent[s] = s;
+        for (int cell = 0; cell < cells; cell++)
+            if (seg.isOpen(cell) && !lit[seg.hSeg[cell]] && !lit[hCount + seg.vSeg[cell]])
+                union(parent, seg.hSeg[cell], hCount + seg.vSeg[cell]);
+        for (int w = 0; w < seg.wallCount; w++) {
+            int bulbs = 0;
+            for (int k = seg.nbrStart[w]; k < seg.nbrStart[w + 1]; k++)
+                if (valueOf(csp, seg, seg.nbrCells[k]) == 'b')
+                    bulbs++;
+            if (bulbs >= seg.wallValue[w])
+                continue;
+            int first = -1;
+            for (int k = seg.nbrStart[w]; k < seg.nbrStart[w + 1]; k++) {
+                int cell = seg.nbrCells[k];
+                if (isVariable(csp, seg, lit, cell)) {
+                    if (first < 0)
+                        first = seg.hSeg[cell];
+                    else
+                        union(parent, first, seg.hSeg[cell]);
+                }
+            }
+        }
+
+        int[] size = new int[lit.length];
+        for (int cell = 0; cell < cells; cell++)
+            if (isVariable(csp, seg, lit, cell))
+                size[find(parent, seg.hSeg[cell])]++;
+        int[][] members = new int[lit.length][];
+        ArrayList<int[]> components = new ArrayList<int[]>();
+        for (int s = 0; s < lit.length; s++)
+            if (size[s] > 0) {
+                members[s] = new int[size[s]];
+                components.add(members[s]);
+            }
+        int[] filled = new int[lit.length];
+        for (int cell = 0; cell < cells; cell++)
+            if (isVariable(csp, seg, lit, cell)) {
+                int root = find(parent, seg.hSeg[cell]);
+                members[root][filled[root]++] = cell;
+            }
+        components.sort((a, b) -> b.length - a.length); // largest first
+        return components;
+    }
+
+    private static char[][] solveTask(String solver, char[][] csp, segment_index seg, ArrayList<int[]> task,
+                                      solve_context context) { // the assignment once every component of the task
+        board_state state = context.board.equals("chars") ? new lighting_state(csp, seg) // is solved, else null
+                : board_state.create(context.board, csp);
+        state = board_wrapper.wrap(state, context);
+        if (context.propagate) {
+            state.enablePropagation();
+            if (!state.propagate())
+                return null;
+        }
+        boolean[] active = new boolean[seg.rows * seg.cols];
+        for (int[] component : task) { // the components are independent, so the earlier ones can stay assigned
+            for (int cell = 0; cell < active.length; cell++)
+                active[cell] = false;
+            for (int cell : component)
+                active[cell] = true;
+            state.restrict(active);
+            Boolean found = solver.equals("backtrack") ? backtrack.search(context, state)
+                    : forward_checking.search(context, state);
+            if (!found)
+                return null;
+        }
+        return state.getAssignment();
+    }
+
+    private static Boolean isVariable(char[][] csp, segment_index seg, boolean[] lit, int cell) {
+        return seg.isOpen(cell) && valueOf(csp, seg, cell) == '_' && !lit[seg.hSeg[cell]]
+                && !lit[seg.hCount + seg.vSeg[cell]];
+    }
+
+    private static char valueOf(char[][] csp, segment_index seg, int cell) {
+        return csp[cell / seg.cols][cell % seg.cols];
+    }
+
+    private static int find(int[] parent, int s) {
+        while (parent[s] != s) {
+            parent[s] = parent[parent[s]];
+            s = parent[s];
+        }
+        return s;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+}
@@ -1,9 +1,8 @@
-import java.time.Duration;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.LinkedList;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.io.File; // Import the File class
 import java.io.FileNotFoundException; // Import this class to handle errors
+import java.io.IOException;
 import java.util.Scanner; // Import the Scanner class to read text files
 
 //Note, the following is a matrix implementation of the CSP, this was done for efficiency reasons.
@@ -11,29 +10,92 @@ import java.util.Scanner; // Import the Scanner class to read text files
 public class forward_checking {
     public static String heuristic = "";
     public static int nodeCount = 0;
+    public static String board = "chars"; // search state implementation, see board_state
+    public static String propagation = "fc"; // fc checks the chosen variable only, mac maintains arc consistency
 
     public static void main(String args[]) {
-        LinkedList<char[][]> problems = getProblems(args[0]);
-        LinkedList<char[][]> solutions = new LinkedList<char[][]>();
-        int[] nodesVisited = new int[problems.size()];
-        long[] times = new long[problems.size()];
+        puzzle_reader problems = puzzle_reader.open(args[0]); // parsed as the puzzles are solved
 
-        if (args.length == 2)
+        if (args.length >= 2)
             heuristic = args[1];
-
-        if(heuristic.equals("H1") || heuristic.equals("H2") || heuristic.equals("H3")){
-            for (int i = 0; i < problems.size(); i++) {
-                System.out.println("Solving puzzle #" + (i + 1) + "...");
-                var startTime = Instant.now();
-                solutions.add(backtrackingSearch(problems.get(i)));
-                var endTime = Instant.now();
-                times[i] = Duration.between(startTime, endTime).get(ChronoUnit.NANOS);
-                nodesVisited[i] = nodeCount; // nodeCount is a global to extract the nodes visited from the recursion
-                //print the solution
-                printSolution(problems.get(i), solutions.get(i), i, nodesVisited[i], times[i]);
+        board = solver_options.get(args, "board", board);
+        propagation = solver_options.get(args, "propagation", propagation);
+        String presolveOption = solver_options.get(args, "presolve", "off");
+        String backjumpOption = solver_options.get(args, "backjump", "off");
+        String searchOption = solver_options.get(args, "search", "recursive");
+        String countOption = solver_options.get(args, "count", "off");
+        long countLimit = countOption.equals("off") ? 0 : countOption.equals("unique") ? solution_counter.UNIQUE
+                : countOption.equals("all") ? Long.MAX_VALUE : Long.parseLong(countOption);
+        String decomposeOption = solver_options.get(args, "decompose", "off");
+        String cacheFile = solver_options.get(args, "cache-file", null);
+        int cacheSize = Integer.parseInt(solver_options.get(args, "cache", cacheFile != null ? "100000" : "0"));
+        String output = solver_options.get(args, "output", "text");
+        String metricsFile = solver_options.get(args, "metrics", null);
+        String traceFile = solver_options.get(args, "trace", null);
+        long timeLimit = Long.parseLong(solver_options.get(args, "timeout", "0")) * 1_000_000; // per puzzle
+        long nodeLimit = Long.parseLong(solver_options.get(args, "node-limit", "0"));
+        int split = Integer.parseInt(solver_options.get(args, "split", "0"));
+        int threads = Integer.parseInt(solver_options.get(args, "threads", split > 0 ? "0" : "1"));
+
+        if((heuristic.equals("H1") || heuristic.equals("H2") || heuristic.equals("H3")) && board_state.isBoard(board)
+                && (propagation.equals("fc") || propagation.equals("mac") && board_state.supportsPropagation(board))
+                && (presolveOption.equals("on") || presolveOption.equals("off"))
+                && (backjumpOption.equals("off") || backjumpOption.equals("on")
+                        && board_state.supportsBackjumping(board) && propagation.equals("fc"))
+                && (searchOption.equals("recursive")
+                        || searchOption.equals("iterative") && backjumpOption.equals("off"))
+                && (decomposeOption.equals("off") || decomposeOption.equals("on")
+                        && board_state.supportsDecomposition(board) && split == 0)
+                && result_writer.isFormat(output)
+                && (traceFile == null || threads == 1 && split == 0 && decomposeOption.equals("off"))
+                && timeLimit >= 0 && nodeLimit >= 0
+                && (countLimit == 0 || countLimit > 0 && backjumpOption.equals("off") && decomposeOption.equals("off")
+                        && cacheSize == 0 && cacheFile == null)){
+            solve_context settings = new solve_context(heuristic, board);
+            settings.presolve = presolveOption.equals("on");
+            settings.backjump = backjumpOption.equals("on");
+            settings.iterative = searchOption.equals("iterative");
+            settings.decompose = decomposeOption.equals("on");
+            settings.timeLimit = timeLimit;
+            settings.nodeLimit = nodeLimit;
+            settings.countLimit = countLimit;
+            if (cacheSize > 0 || cacheFile != null)
+                settings.cache = new solution_cache(cacheSize, cacheFile);
+            if (metricsFile != null)
+                settings.metrics = new solve_metrics();
+            try {
+                if (traceFile != null) // one puzzle at a time, so the events follow each other
+                    settings.trace = search_trace.create(traceFile);
+            } catch (IOException e) {
+                System.out.println("An error occurred.");
+                e.printStackTrace();
+                return;
             }
-
-            //printSolutions(problems, solutions, nodesVisited, times);
+            settings.propagate = propagation.equals("mac");
+            result_writer out = result_writer.create(output); // buffered, written out as it fills up
+            if (split > 0) // every puzzle is searched in parallel, one puzzle at a time
+                parallel_search.solveAll("forward_checking", problems, settings, threads, split, out);
+            else if (threads != 1) // batch mode, puzzles are solved concurrently but printed in order
+                batch_solver.solveAll("forward_checking", problems, settings, threads, out);
+            else {
+                int i = 0;
+                for (char[][] problem : problems) {
+                    solve_context context = settings.copy(heuristic, new AtomicBoolean());
+                    long startTime = System.nanoTime();
+                    char[][] solution = backtrackingSearch(problem, context);
+                    long time = System.nanoTime() - startTime;
+
+                    //print the solution
+                    out.write(i, problem, solution, context.nodeCount, time, context); // the context collects the
+                    i++;                                                              // nodes visited by the recursion
+                }
+            }
+            solution_cache.finish(settings, out);
+            out.flush();
+            if (settings.metrics != null)
+                settings.metrics.export(metricsFile);
+            if (settings.trace != null)
+                settings.trace.close();
         }
         else{
             System.out.println("Invalid arguements.");
@@ -110,41 +172,90 @@ public class forward_checking {
         }
     }
 
-    public static void printProblem(char[][] c) {
-        System.out.println(c.length + " x " + c[0].length);
-        for (int i = 0; i < c.length; i++) {
-            for (int j = 0; j < c[i].length; j++) {
-                System.out.print(c[i][j]);
-            }
-            System.out.print("\n");
-        }
+    public static void printProblem(char[][] c) { // one write for the whole grid
+        StringBuilder text = new StringBuilder(c.length * (c[0].length + 1) + 16);
+        text.append(c.length).append(" x ").append(c[0].length).append('\n');
+        for (char[] row : c)
+            text.append(row).append('\n');
+        System.out.print(text);
+    }
+
+    public static char[][] backtrackingSearch(char[][] csp) { // uses the static settings, nodeCount is set afterwards
+        solve_context context = new solve_context(heuristic, board);
+        context.propagate = propagation.equals("mac");
+        char[][] solution = backtrackingSearch(csp, context);
+        nodeCount = context.nodeCount;
+        return solution;
     }
 
-    public static char[][] backtrackingSearch(char[][] csp) {
-        nodeCount = 0;
-        char[][] assignment = copyArray(csp);
-        if (recursiveBacktracking(assignment)) {
+    public static char[][] backtrackingSearch(char[][] csp, solve_context context) { // safe to call from any thread
+        char[][] solution;
+        context.startLimits();
+        if (context.trace != null)
+            context.trace.begin(csp);
+        if (context.cache != null) // copies of puzzles solved before are not searched again
+            solution = context.cache.solve(csp, context, forward_checking::searchPuzzle);
+        else
+            solution = searchPuzzle(csp, context);
+        if (context.metrics != null)
+            context.metrics.finish(context, solution);
+        if (context.trace != null)
+            context.trace.end(solution, context.nodeCount);
+        return solution;
+    }
+
+    private static char[][] searchPuzzle(char[][] csp, solve_context context) {
+        context.nodeCount = 0;
+        if (context.presolve) { // the search starts from the reduced puzzle
+            csp = copyArray(csp);
+            context.presolved = presolve.reduce(csp);
+        }
+        if (context.decompose) // the independent parts of the puzzle are searched separately
+            return decomposition.solve("forward_checking", csp, context);
+        board_state state = board_wrapper.wrap(board_state.create(context.board, csp), context);
+        if (!(state.checkWalls() && state.checkNoBulbs())) // the puzzle's own bulbs light each other, or the
+            return null;                                   // deductions of presolve ran into a contradiction
+        if (context.propagate) { // values forced by the puzzle itself are assigned before the first choice
+            state.enablePropagation();
+            if (!state.propagate())
+                return null;
+        }
+        if (context.countLimit > 0) // every solution is counted, the first one is returned
+            return solution_counter.count(context, state, true);
+        if (search(context, state)) {
+            char[][] assignment = state.getAssignment();
             formatSolution(assignment);
             return assignment;
         } else
             return null;
     }
 
-    public static Boolean recursiveBacktracking(char[][] assignment) { // main recursion (equivalent to pseudocode in slide 33)
+    public static Boolean search(solve_context context, board_state state) { // the recursion the context asks for
+        if (context.backjump)
+            return backjumping.search(context, state, true);
+        if (context.iterative)
+            return iterative_search.search(context, state, true);
+        return recursiveBacktracking(context, state);
+    }
+
+    public static Boolean recursiveBacktracking(solve_context context, board_state state) { // main recursion (equivalent to pseudocode in slide 33)
 
-        int[] var = selectUnassignedVariable(assignment);
-        if (var == null)
+        if (context.isStopped()) // another search on the same puzzle has finished, or a limit ran out
+            return false;
+        int var = selectUnassignedVariable(context, state);
+        if (var < 0)
             return true;
-        char[] domain = forwardCheck(var, assignment);
+        char[] domain = context.order(var, forwardCheck(var, state));
         for (char value : domain) {
-            nodeCount++; //we have made a choice for our variable -> increment node count
-            if (partialAssignment(var, value, assignment)) {
-                assignment[var[0]][var[1]] = value;
-                Boolean result = recursiveBacktracking(assignment);
-                if (result)
-                    return result;
-                else
-                    assignment[var[0]][var[1]] = '_';
+            context.nodeCount++; //we have made a choice for our variable -> increment node count
+            int depth = state.getDepth();
+            if (partialAssignment(var, value, state)) {
+                if (!context.propagate || state.propagate()) {
+                    Boolean result = recursiveBacktracking(context, state);
+                    if (result)
+                        return result;
+                }
+                state.undoTo(depth); // the value and everything it forced
             }
         }
         return false;
@@ -158,20 +269,22 @@ public class forward_checking {
         return domain;
     }
 
-    public static int[] selectUnassignedVariable(char[][] assignment) { // This is where heuristic functions will be applied ------------------ Forward checking implementation
-        int[] variable = null;
-        char[][] lightingApplied = copyArray(assignment);
-        //applyLighting(lightingApplied);
+    public static char[] forwardCheck(int variable, board_state state){ // lighting is already maintained by the state
+        return state.calculateDomain(variable);
+    }
+
+    public static int selectUnassignedVariable(solve_context context, board_state state) { // This is where heuristic functions will be applied ------------------ Forward checking implementation
+        int variable = -1;
 
-        switch (heuristic) {
+        switch (context.heuristic) {
             case "H1":
-                variable = H1(lightingApplied);
+                variable = state.H1();
                 break;
             case "H2":
-                variable = H2(lightingApplied);
+                variable = state.H2();
                 break;
             case "H3":
-                variable = H3(lightingApplied);
+                variable = state.H3();
                 break;
         }
         return variable;
@@ -189,7 +302,13 @@ public class forward_checking {
     }
 
     public static int[] H1(char[][] assignment) { // finds the most constrained variable
-        LinkedList<int[]> list = getH1List(assignment);
+        char[][] lightingApplied = copyArray(assignment);
+        applyLighting(lightingApplied);
+        return H1(assignment, lightingApplied);
+    }
+
+    public static int[] H1(char[][] assignment, char[][] lightingApplied) {
+        LinkedList<int[]> list = getH1List(assignment, lightingApplied);
         if (list != null)
             return list.get(0);
         else
@@ -202,6 +321,10 @@ public class forward_checking {
         char[][] lightingApplied = copyArray(assignment);
 
         applyLighting(lightingApplied);
+        return getH1List(assignment, lightingApplied);
+    }
+
+    public static LinkedList<int[]> getH1List(char[][] assignment, char[][] lightingApplied) {
         LinkedList<int[]> option1 = new LinkedList<int[]>();
         LinkedList<int[]> option2 = new LinkedList<int[]>();
         for (int i = 0; i < assignment.length; i++) {
@@ -226,9 +349,15 @@ public class forward_checking {
     }
 
     public static int[] H3(char[][] assignment) { // Finds most constrained variable, that constrains the most other variables
+        char[][] lightingApplied = copyArray(assignment);
+        applyLighting(lightingApplied);
+        return H3(assignment, lightingApplied);
+    }
+
+    public static int[] H3(char[][] assignment, char[][] lightingApplied) {
         int[] var = null;
 
-        LinkedList<int[]> list = getH1List(assignment);
+        LinkedList<int[]> list = getH1List(assignment, lightingApplied);
         if (list != null) {
             int bestDegree = Integer.MIN_VALUE;
             for (int i = 0; i < list.size(); i++) {
@@ -479,6 +608,17 @@ public class forward_checking {
         return false;
     }
 
+    public static Boolean partialAssignment(int var, char value, board_state state) { // incremental version, the
+                                                                                     // value stays assigned when
+                                                                                     // it is consistent
+        if (state.assign(var, value))
+            if (state.checkWalls())
+                if (state.checkNoBulbs())
+                    return true;
+        state.undo();
+        return false;
+    }
+
     public static Boolean checkNoBulbs(char[][] lightingApplied) { // check the no-bulb positions, and ensure they can
                                                                    // be lit in the future
         for (int i = 0; i < lightingApplied.length; i++) {
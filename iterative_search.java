@@ -0,0 +1,116 @@
+import java.util.Arrays;
+
+//Explicit-stack version of the chronological recursion of backtrack and forward_checking (recursiveBacktracking),
+//for boards whose search depth would overflow the JVM stack: a 200 x 200 grid holds tens of thousands of assignments,
+//one recursive frame each. The decision stack holds the variable of each level, its domain, the next value to try
+//and the trail depth before the value. It starts at LEVELS levels and doubles when the search goes deeper, so a small
+//puzzle allocates next to nothing and a large one grows it a few times at most.
+//The search visits the same nodes in the same order as the recursion and calls the board the same way, so the
+//results, metrics and traces are the same too.
+//run() can stop after a budget of nodes and picks up where it left off on the next call. After a solution the next
+//call goes on with the values after it, so the same search can also look for further solutions.
+//Chronological only, conflict-directed backjumping keeps its own recursion (see backjumping).
+//to run: java forward_checking lightupPuzzles.txt H3 --search=iterative
+public class iterative_search {
+
+    public static final int SOLVED = 0;    // the board holds a solution
+    public static final int EXHAUSTED = 1; // there is no (further) solution
+    public static final int STOPPED = 2;   // the context was stopped, see solve_context.isStopped()
+    public static final int SUSPENDED = 3; // the node budget ran out
+
+    private static final int EXPAND = 0;  // next step: a node of the recursion, choose the next variable
+    private static final int RETRACT = 1; // undo the value of the top level, then try the next one
+
+    private static final int LEVELS = 64; // initial stack size
+
+    private final solve_context context;
+    private final board_state state;
+    private final Boolean forwardChecking; // domains from forward_checking.forwardCheck, otherwise both values
+    private int[] var = new int[LEVELS];   // per level, from 0
+    private char[][] domain = new char[LEVELS][];
+    private int[] next = new int[LEVELS];  // index of the next value to try in domain
+    private int[] depth = new int[LEVELS]; // trail depth before the value
+    private int top = -1;                  // the deepest level, -1 before the first choice
+    private int step = EXPAND;
+
+    public iterative_search(solve_context context, board_state state, Boolean forwardChecking) {
+        this.context = context;
+        this.state = state;
+        this.forwardChecking = forwardChecking;
+    }
+
+    public static Boolean search(solve_context context, board_state state, Boolean forwardChecking) { // true once
+        return new iterative_search(context, state, forwardChecking).run(0) == SOLVED; // the board holds a solution
+    }
+
+    public int run(long budget) { // searches until a solution, the end of the tree or budget more nodes (0 for none)
+        long until = budget > 0 ? context.nodeCount + budget : Long.MAX_VALUE;
+        while (true) {
+            if (step == EXPAND) {
+                if (context.nodeCount >= until) // resumed at this node
+                    return SUSPENDED;
+                if (context.isStopped()) // another search on the same puzzle has finished, or a limit ran out
+                    return STOPPED;
+                if (!expand()) {
+                    step = RETRACT; // resumed with the next value of the last choice
+                    return SOLVED;
+                }
+            } else if (step == RETRACT) {
+                if (top < 0)
+                    return EXHAUSTED;
+                retract();
+            }
+            step = advance();
+        }
+    }
+
+    //The work of a node is kept out of run() in small methods: they are called once per node, so the JIT compiles
+    //them as early as it compiles the recursion, where a single long loop would run interpreted for much longer.
+
+    private Boolean expand() { // a new level for the next variable, false when there is none left
+        int v = forwardChecking ? forward_checking.selectUnassignedVariable(context, state)
+                : backtrack.selectUnassignedVariable(context, state);
+        if (v < 0)
+            return false;
+        if (++top == var.length)
+            grow();
+        var[top] = v;
+        domain[top] = context.order(v, forwardChecking ? forward_checking.forwardCheck(v, state)
+                : backtrack.orderDomainValues);
+        next[top] = 0;
+        return true;
+    }
+
+    private int advance() { // tries the values left at the top level, EXPAND once one is consistent
+        int level = top;
+        char[] values = domain[level];
+        for (int k = next[level]; k < values.length; k++) {
+            context.nodeCount++; // we have made a choice for our variable -> increment node count
+            int before = state.getDepth();
+            if (backtrack.partialAssignment(var[level], values[k], state)) {
+                if (!forwardChecking || !context.propagate || state.propagate()) {
+                    next[level] = k + 1;
+                    depth[level] = before;
+                    return EXPAND;
+                }
+                state.undoTo(before);
+            }
+        }
+        top--; // every value failed, back to the level above
+        return RETRACT;
+    }
+
+    private void retract() { // takes back the value of the top level
+        if (forwardChecking)
+            state.undoTo(depth[top]); // the value and everything it forced
+        else
+            state.undo();
+    }
+
+    private void grow() {
+        var = Arrays.copyOf(var, top * 2);
+        domain = Arrays.copyOf(domain, top * 2);
+        next = Arrays.copyOf(next, top * 2);
+        depth = Arrays.copyOf(depth, top * 2);
+    }
+}
@@ -0,0 +1,103 @@
+package benchmark;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Microbenchmarks of the board_state kernels the search calls at every node: assign and undo, checkWalls, checkNoBulbs
+//and the heuristics H1, H2 and H3, for both boards. They run on the same mid-search snapshot as kernel_benchmark: the
+//top half of the rows of the first puzzle holds the bulbs of the solution and 'n' everywhere else, the bottom half is
+//unassigned. assignUndo places a bulb on the first unassigned cell that can take one and takes it back, so the board
+//is the same snapshot again after every call.
+//to run (from the repository root): java -jar target/benchmarks.jar board_benchmark -p board=bits
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class board_benchmark {
+
+    @Param({ "lightupPuzzles.txt", "12W.txt", "24W.txt", "48W.txt" })
+    public String file;
+
+    @Param({ "chars", "bits" })
+    public String board;
+
+    private Object state; // the board_state
+    private int bulbCell; // cell assignUndo places its bulb on
+
+    @Setup
+    public void setup() throws Throwable {
+        LinkedList<char[][]> problems = solver_handles.getProblems(file);
+        char[][] problem = problems.getFirst();
+        char[][] solution = solver_handles.solve("forward_checking", problem, "H3", "chars");
+        if (solution == null)
+            throw new IllegalStateException(file + ": the first puzzle has no solution");
+
+        state = solver_handles.CREATE_BOARD.invokeExact(board, problem);
+        int cols = problem[0].length;
+        bulbCell = -1;
+        for (int i = 0; i < problem.length; i++)
+            for (int j = 0; j < cols; j++)
+                if (problem[i][j] == '_') {
+                    int cell = i * cols + j;
+                    if (i < problem.length / 2) {
+                        Boolean consistent = (Boolean) solver_handles.ASSIGN.invokeExact(state, cell,
+                                solution[i][j] == 'b' ? 'b' : 'n');
+                        if (!consistent)
+                            throw new IllegalStateException(file + ": snapshot is not consistent");
+                    } else if (bulbCell < 0) {
+                        Boolean consistent = (Boolean) solver_handles.ASSIGN.invokeExact(state, cell, 'b');
+                        solver_handles.UNDO.invokeExact(state);
+                        if (consistent)
+                            bulbCell = cell;
+                    }
+                }
+        if (bulbCell < 0)
+            throw new IllegalStateException(file + ": no unassigned cell can take a bulb");
+    }
+
+    @Benchmark
+    public Boolean assignUndo() throws Throwable {
+        Boolean consistent = (Boolean) solver_handles.ASSIGN.invokeExact(state, bulbCell, 'b');
+        solver_handles.UNDO.invokeExact(state);
+        return consistent;
+    }
+
+    @Benchmark
+    public Boolean checkWalls() throws Throwable {
+        return (Boolean) solver_handles.BOARD_CHECK_WALLS.invokeExact(state);
+    }
+
+    @Benchmark
+    public Boolean checkNoBulbs() throws Throwable {
+        return (Boolean) solver_handles.BOARD_CHECK_NO_BULBS.invokeExact(state);
+    }
+
+    @Benchmark
+    public int H1() throws Throwable {
+        return (int) solver_handles.H1.invokeExact(state);
+    }
+
+    @Benchmark
+    public int H2() throws Throwable {
+        return (int) solver_handles.H2.invokeExact(state);
+    }
+
+    @Benchmark
+    public int H3() throws Throwable {
+        return (int) solver_handles.H3.invokeExact(state);
+    }
+}
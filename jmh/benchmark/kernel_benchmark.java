@@ -0,0 +1,101 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+//Microbenchmarks of the legacy char[][] kernels in backtrack: applyLighting, checkWalls, checkNoBulbs, calculateDegree
+//and getH1List. The search no longer calls them, it runs on a board_state (see board_benchmark); they are kept as the
+//reference the incremental boards are compared against. They run on a mid-search snapshot of the first puzzle in the
+//file: the top half of the rows holds the bulbs of the solution and 'n' everywhere else, the bottom half is unassigned.
+//applyLighting writes into its argument, so it is measured together with copyArray; subtract the copyArray score
+//to get the lighting alone.
+//to run (from the repository root): java -jar target/benchmarks.jar kernel_benchmark
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class kernel_benchmark {
+
+    @Param({ "lightupPuzzles.txt", "12W.txt", "24W.txt", "48W.txt" })
+    public String file;
+
+    private char[][] assignment;
+    private char[][] lightingApplied;
+    private int[][] unassigned; // cells calculateDegree is measured on, like H2 does
+
+    @Setup
+    public void setup() throws Throwable {
+        LinkedList<char[][]> problems = solver_handles.getProblems(file);
+        char[][] problem = problems.getFirst();
+        char[][] solution = solver_handles.solve("forward_checking", problem, "H3", "chars");
+        if (solution == null)
+            throw new IllegalStateException(file + ": the first puzzle has no solution");
+
+        assignment = (char[][]) solver_handles.COPY_ARRAY.invokeExact(problem);
+        ArrayList<int[]> cells = new ArrayList<int[]>();
+        for (int i = 0; i < assignment.length; i++)
+            for (int j = 0; j < assignment[i].length; j++)
+                if (assignment[i][j] == '_') {
+                    if (i < assignment.length / 2)
+                        assignment[i][j] = solution[i][j] == 'b' ? 'b' : 'n';
+                    else
+                        cells.add(new int[] { i, j });
+                }
+        unassigned = cells.toArray(new int[0][]);
+
+        lightingApplied = (char[][]) solver_handles.COPY_ARRAY.invokeExact(assignment);
+        Boolean consistent = (Boolean) solver_handles.APPLY_LIGHTING.invokeExact(lightingApplied);
+        if (!consistent)
+            throw new IllegalStateException(file + ": snapshot is not consistent");
+    }
+
+    @Benchmark
+    public char[][] copyArray() throws Throwable {
+        return (char[][]) solver_handles.COPY_ARRAY.invokeExact(assignment);
+    }
+
+    @Benchmark
+    public char[][] applyLighting() throws Throwable {
+        char[][] lit = (char[][]) solver_handles.COPY_ARRAY.invokeExact(assignment);
+        Boolean consistent = (Boolean) solver_handles.APPLY_LIGHTING.invokeExact(lit);
+        return consistent ? lit : null;
+    }
+
+    @Benchmark
+    public Boolean checkWalls() throws Throwable {
+        return (Boolean) solver_handles.CHECK_WALLS.invokeExact(lightingApplied);
+    }
+
+    @Benchmark
+    public Boolean checkNoBulbs() throws Throwable {
+        return (Boolean) solver_handles.CHECK_NO_BULBS.invokeExact(lightingApplied);
+    }
+
+    @Benchmark
+    public int calculateDegree() throws Throwable { // every unassigned cell, as one H2 call does
+        int total = 0;
+        for (int[] cell : unassigned)
+            total += (int) solver_handles.CALCULATE_DEGREE.invokeExact(cell, assignment);
+        return total;
+    }
+
+    @Benchmark
+    public LinkedList<?> getH1List() throws Throwable {
+        return (LinkedList<?>) solver_handles.GET_H1_LIST.invokeExact(assignment, lightingApplied);
+    }
+}
@@ -0,0 +1,54 @@
+package benchmark;
+
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+//End-to-end benchmark: one operation solves every puzzle of the file, the way main does but without printing.
+//Narrow the matrix with -p, e.g.
+//  java -jar target/benchmarks.jar solve_benchmark -p file=48W.txt -p heuristic=H3 -p board=chars
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class solve_benchmark {
+
+    @Param({ "lightupPuzzles.txt", "12W.txt", "24W.txt", "48W.txt" })
+    public String file;
+
+    @Param({ "backtrack", "forward_checking" })
+    public String solver;
+
+    @Param({ "H1", "H2", "H3" })
+    public String heuristic;
+
+    @Param({ "chars", "bits" })
+    public String board;
+
+    private LinkedList<char[][]> problems;
+
+    @Setup
+    public void setup() {
+        problems = solver_handles.getProblems(file);
+    }
+
+    @Benchmark
+    public void solve(Blackhole blackhole) {
+        for (char[][] problem : problems)
+            blackhole.consume(solver_handles.solve(solver, problem, heuristic, board));
+    }
+}
@@ -0,0 +1,107 @@
+package benchmark;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.LinkedList;
+
+//The solvers are in the default package, which cannot be imported, and JMH does not accept benchmarks in the default
+//package. The benchmarks therefore call the solvers through these handles. They are static final, so the JIT treats
+//them as constants and inlines the target like a direct call.
+final class solver_handles {
+
+    static final MethodHandle GET_PROBLEMS;
+    static final MethodHandle COPY_ARRAY;
+    static final MethodHandle APPLY_LIGHTING;
+    static final MethodHandle CHECK_WALLS;
+    static final MethodHandle CHECK_NO_BULBS;
+    static final MethodHandle CALCULATE_DEGREE;
+    static final MethodHandle GET_H1_LIST;
+    static final MethodHandle NEW_CONTEXT;        // solve_context(String heuristic, String board)
+    static final MethodHandle BACKTRACK_SEARCH;   // backtrack.backtrackingSearch(char[][], solve_context)
+    static final MethodHandle FORWARD_CHECKING_SEARCH;
+    static final MethodHandle CREATE_BOARD;       // board_state.create(String board, char[][] csp)
+    static final MethodHandle ASSIGN;             // the board_state methods, with the board as an Object receiver
+    static final MethodHandle UNDO;
+    static final MethodHandle BOARD_CHECK_WALLS;
+    static final MethodHandle BOARD_CHECK_NO_BULBS;
+    static final MethodHandle H1;
+    static final MethodHandle H2;
+    static final MethodHandle H3;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> backtrack = Class.forName("backtrack");
+            Class<?> forwardChecking = Class.forName("forward_checking");
+            Class<?> context = Class.forName("solve_context");
+            Class<?> board = Class.forName("board_state");
+            GET_PROBLEMS = lookup.findStatic(backtrack, "getProblems",
+                    MethodType.methodType(LinkedList.class, String.class));
+            COPY_ARRAY = lookup.findStatic(backtrack, "copyArray",
+                    MethodType.methodType(char[][].class, char[][].class));
+            APPLY_LIGHTING = lookup.findStatic(backtrack, "applyLighting",
+                    MethodType.methodType(Boolean.class, char[][].class));
+            CHECK_WALLS = lookup.findStatic(backtrack, "checkWalls",
+                    MethodType.methodType(Boolean.class, char[][].class));
+            CHECK_NO_BULBS = lookup.findStatic(backtrack, "checkNoBulbs",
+                    MethodType.methodType(Boolean.class, char[][].class));
+            CALCULATE_DEGREE = lookup.findStatic(backtrack, "calculateDegree",
+                    MethodType.methodType(int.class, int[].class, char[][].class));
+            GET_H1_LIST = lookup.findStatic(backtrack, "getH1List",
+                    MethodType.methodType(LinkedList.class, char[][].class, char[][].class));
+            NEW_CONTEXT = lookup.findConstructor(context,
+                    MethodType.methodType(void.class, String.class, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class, String.class));
+            BACKTRACK_SEARCH = lookup.findStatic(backtrack, "backtrackingSearch",
+                    MethodType.methodType(char[][].class, char[][].class, context))
+                    .asType(MethodType.methodType(char[][].class, char[][].class, Object.class));
+            FORWARD_CHECKING_SEARCH = lookup.findStatic(forwardChecking, "backtrackingSearch",
+                    MethodType.methodType(char[][].class, char[][].class, context))
+                    .asType(MethodType.methodType(char[][].class, char[][].class, Object.class));
+            CREATE_BOARD = lookup.findStatic(board, "create",
+                    MethodType.methodType(board, String.class, char[][].class))
+                    .asType(MethodType.methodType(Object.class, String.class, char[][].class));
+            ASSIGN = lookup.findVirtual(board, "assign",
+                    MethodType.methodType(Boolean.class, int.class, char.class))
+                    .asType(MethodType.methodType(Boolean.class, Object.class, int.class, char.class));
+            UNDO = lookup.findVirtual(board, "undo", MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(void.class, Object.class));
+            BOARD_CHECK_WALLS = lookup.findVirtual(board, "checkWalls", MethodType.methodType(Boolean.class))
+                    .asType(MethodType.methodType(Boolean.class, Object.class));
+            BOARD_CHECK_NO_BULBS = lookup.findVirtual(board, "checkNoBulbs", MethodType.methodType(Boolean.class))
+                    .asType(MethodType.methodType(Boolean.class, Object.class));
+            H1 = lookup.findVirtual(board, "H1", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+            H2 = lookup.findVirtual(board, "H2", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+            H3 = lookup.findVirtual(board, "H3", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private solver_handles() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static LinkedList<char[][]> getProblems(String fileName) {
+        try {
+            return (LinkedList<char[][]>) GET_PROBLEMS.invokeExact(fileName);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static char[][] solve(String solver, char[][] problem, String heuristic, String board) {
+        try {
+            Object context = NEW_CONTEXT.invokeExact(heuristic, board);
+            if (solver.equals("backtrack"))
+                return (char[][]) BACKTRACK_SEARCH.invokeExact(problem, context);
+            return (char[][]) FORWARD_CHECKING_SEARCH.invokeExact(problem, context);
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,633 @@
+//Incremental search state shared by backtrack and forward_checking.
+//Instead of copying the grid and re-lighting every bulb for each candidate value, the state keeps the number of
+//bulbs in every row and column segment (see segment_index). A cell is lit exactly when one of its two segments holds
+//a bulb, so conflicts and lighting are lookups, and placing a bulb only visits the members of its two segments.
+//Every numbered wall keeps live counts of its neighbouring bulbs and open cells, which are only touched when one of
+//its neighbours changes, so wall checks are lookups as well.
+//Every dark cell (an unlit 'n') can only be lit by a free cell in one of its two segments, so its support is
+//hFree + vFree. Dark cells are only rechecked when one of their segments runs out of free cells or gets one back, and
+//a dark cell without support fails the branch immediately.
+//Unassigned cells are kept in variable_selector buckets by options and degree. A cell is only re-bucketed when one of
+//its segments, one of its walls or its lighting changes, so the heuristics do not scan the grid.
+//Every assignment is recorded on a trail so that backtracking can undo it exactly. For backjumping, a failure is
+//explained by the trail positions of the assignments behind it, see explainFailure().
+//With propagation enabled, every segment and wall whose counts change is queued, and propagate() examines the queue
+//until nothing changes: lit cells are forced to 'n', walls that need all or none of their free neighbours force them,
+//and a dark cell (or an unassigned one) that only one free cell can still light forces that cell to be a bulb.
+public class lighting_state extends board_state {
+
+    public final char[][] assignment; // the assignment itself ('_', 'b', 'n' and walls)
+    public final char[][] lit;        // the assignment with lighting applied ('x' for lit cells)
+    public final segment_index seg;
+
+    private final int[] hBulbs;       // bulbs in each horizontal segment
+    private final int[] vBulbs;       // bulbs in each vertical segment
+    private final int[] hFree;        // unassigned, unlit cells in each horizontal segment
+    private final int[] vFree;        // unassigned, unlit cells in each vertical segment
+    private final int[] hOpen;        // unassigned cells in each horizontal segment
+    private final int[] vOpen;        // unassigned cells in each vertical segment
+
+    private final int[] wallBulbs;    // bulbs next to each wall
+    private final int[] wallFree;     // unassigned, unlit cells next to each wall
+    private final int[] wallOpen;     // unassigned cells next to each wall
+    private int violatedWalls = 0;    // walls with too many bulbs, or too few bulbs and free cells
+
+    private final boolean[] dark;     // unlit cells assigned 'n'
+    private final boolean[] starved;  // dark cells that no free cell can light any more
+    private final int[] hDark;        // dark cells in each horizontal segment
+    private final int[] vDark;        // dark cells in each vertical segment
+    private int starvedCells = 0;
+
+    private final variable_selector selector;
+    private boolean[] active = null;  // the only variables the heuristics may choose, null for all of them
+    private final int[] trail;        // (cell << 1) | 1 if the assignment lit its segments
+    private int depth = 0;
+    private final int[] levels;       // trail position of each assigned cell, -1 if unassigned or given
+    private int[] reason;             // explainFailure() scratch: levels behind one failed constraint
+    private int[] bestReason;         // and behind the best one found so far
+    private int reasonSize = 0;
+    private int bestSize = 0;
+
+    private boolean propagating = false; // segments and walls are queued as they change, see propagate()
+    private final int[] queue;        // horizontal segment s is s, vertical segment s is hCount + s and wall w is
+                                      // hCount + vCount + w
+    private final boolean[] inQueue;
+    private int queued = 0;
+    private boolean conflict = false; // a forced bulb was already lit
+    private boolean givenConflict = false; // two bulbs of the puzzle itself light each other
+
+    public lighting_state(char[][] csp) {
+        this(csp, new segment_index(csp));
+    }
+
+    public lighting_state(char[][] csp, segment_index seg) {
+        super(csp.length, csp[0].length);
+        this.seg = seg;
+        assignment = new char[rows][cols];
+        lit = new char[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++) {
+                assignment[i][j] = csp[i][j];
+                lit[i][j] = csp[i][j];
+            }
+        hBulbs = new int[seg.hCount];
+        vBulbs = new int[seg.vCount];
+        hFree = new int[seg.hCount];
+        vFree = new int[seg.vCount];
+        hOpen = new int[seg.hCount];
+        vOpen = new int[seg.vCount];
+        wallBulbs = new int[seg.wallCount];
+        wallFree = new int[seg.wallCount];
+        wallOpen = new int[seg.wallCount];
+        dark = new boolean[rows * cols];
+        starved = new boolean[rows * cols];
+        hDark = new int[seg.hCount];
+        vDark = new int[seg.vCount];
+        selector = new variable_selector(rows * cols, rows + cols + 12); // at most 3 per wall and the two segments
+        trail = new int[rows * cols + 1];
+        levels = new int[rows * cols];
+        for (int cell = 0; cell < rows * cols; cell++)
+            levels[cell] = -1;
+        reason = new int[rows + cols + 4]; // a dark cell and the other members of its segments, or a wall
+        bestReason = new int[reason.length];
+        queue = new int[seg.hCount + seg.vCount + seg.wallCount];
+        inQueue = new boolean[queue.length];
+
+        for (int cell = 0; cell < rows * cols; cell++)
+            if (assignment[cell / cols][cell % cols] == '_') {
+                hFree[seg.hSeg[cell]]++;
+                vFree[seg.vSeg[cell]]++;
+                hOpen[seg.hSeg[cell]]++;
+                vOpen[seg.vSeg[cell]]++;
+                for (int k = seg.adjStart[cell]; k < seg.adjStart[cell + 1]; k++) {
+                    wallFree[seg.adjWalls[k]]++;
+                    wallOpen[seg.adjWalls[k]]++;
+                }
+            }
+        for (int w = 0; w < seg.wallCount; w++)
+            if (wallViolated(w))
+                violatedWalls++;
+
+        for (int cell = 0; cell < rows * cols; cell++)
+            if (assignment[cell / cols][cell % cols] == 'n')
+                markDark(cell);
+
+        // bulbs already present in the puzzle are lit permanently (they are never undone), one that is lit by another
+        // makes the puzzle unsolvable (checkWalls() fails)
+        for (int cell = 0; cell < rows * cols; cell++)
+            if (assignment[cell / cols][cell % cols] == 'b') {
+                if (isLit(cell)) {
+                    givenConflict = true;
+                    continue;
+                }
+                changeBulb(cell, 1);
+                lightSegments(cell);
+            }
+        for (int cell = 0; cell < rows * cols; cell++)
+            refresh(cell);
+    }
+
+    @Override
+    public Boolean assign(int cell, char value) { // assigns value to cell and returns false if the new bulb is
+                                                  // lit by another one. Always call undo() when rejecting.
+        int i = cell / cols;
+        int j = cell % cols;
+        boolean wasLit = isLit(cell);
+        assignment[i][j] = value;
+        levels[cell] = depth;
+        changeOpen(cell, -1);
+
+        if (value == 'b') {
+            if (wasLit) { // another bulb shares a row or column segment with this one
+                trail[depth++] = cell << 1;
+                return false;
+            }
+            changeFree(cell, -1);
+            changeBulb(cell, 1);
+            lit[i][j] = 'b';
+            lightSegments(cell);
+            trail[depth++] = (cell << 1) | 1;
+        } else {
+            if (!wasLit) {
+                changeFree(cell, -1);
+                lit[i][j] = value;
+                if (value == 'n')
+                    markDark(cell);
+            }
+            trail[depth++] = cell << 1;
+        }
+        return true;
+    }
+
+    @Override
+    public void undo() { // reverts the most recent assignment
+        boolean wasPropagating = propagating;
+        propagating = false; // nothing is deduced from taking a value back
+        clearQueue();
+        int entry = trail[--depth];
+        int cell = entry >>> 1;
+        int i = cell / cols;
+        int j = cell % cols;
+        if ((entry & 1) != 0) {
+            unlightSegments(cell);
+            changeBulb(cell, -1);
+        }
+        if (dark[cell])
+            unmarkDark(cell);
+        assignment[i][j] = '_';
+        levels[cell] = -1;
+        changeOpen(cell, 1);
+        if (isLit(cell))
+            lit[i][j] = 'x';
+        else { // the cell was not lit when it was assigned either, so it left the free counts
+            lit[i][j] = '_';
+            changeFree(cell, 1);
+        }
+        propagating = wasPropagating;
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public void enablePropagation() { // the whole puzzle is examined by the next propagate()
+        propagating = true;
+        for (int item = 0; item < queue.length; item++)
+            enqueue(item);
+    }
+
+    @Override
+    public void restrict(boolean[] variables) {
+        active = variables;
+        for (int cell = 0; cell < rows * cols; cell++)
+            refresh(cell);
+    }
+
+    @Override
+    public Boolean propagate() {
+        while (queued > 0 && consistent()) {
+            int item = queue[--queued];
+            inQueue[item] = false;
+            if (item < seg.hCount)
+                propagateSegment(seg.hStart, seg.hCells, item);
+            else if (item < seg.hCount + seg.vCount)
+                propagateSegment(seg.vStart, seg.vCells, item - seg.hCount);
+            else
+                propagateWall(item - seg.hCount - seg.vCount);
+        }
+        if (consistent())
+            return true;
+        clearQueue();
+        conflict = false; // the caller undoes the forced values
+        return false;
+    }
+
+    @Override
+    public int levelOf(int cell) {
+        return levels[cell];
+    }
+
+    @Override
+    public void explainFailure(int cell, long[] levels) { // of the failed constraints, the one whose latest assignment
+                                                          // is the oldest gives the longest jump
+        if (assignment[cell / cols][cell % cols] == 'b' && (trail[depth - 1] & 1) == 0) { // the bulb was already lit
+            addLevel(levels, this.levels[cell]);
+            addLevel(levels, lighterLevel(cell));
+            return;
+        }
+        bestSize = -1;
+        int bestLatest = 0;
+        for (int w = 0; w < seg.wallCount; w++)
+            if (wallViolated(w))
+                bestLatest = keepBest(explainWall(w), bestLatest);
+        for (int other = 0; other < rows * cols; other++)
+            if (starved[other])
+                bestLatest = keepBest(explainStarved(other), bestLatest);
+        for (int k = 0; k < bestSize; k++)
+            addLevel(levels, bestReason[k]);
+    }
+
+    @Override
+    public int cellsExamined(int check, int cell, char value, Boolean consistent) {
+        if (check != solve_metrics.LIGHTING) // the checks read counters that assign keeps up to date
+            return 0;
+        if (value == 'b' && consistent) // a new bulb visits the members of its two segments
+            return seg.hStart[seg.hSeg[cell] + 1] - seg.hStart[seg.hSeg[cell]] + seg.vStart[seg.vSeg[cell] + 1]
+                    - seg.vStart[seg.vSeg[cell]];
+        return 1;
+    }
+
+    public Boolean isLit(int cell) {
+        return hBulbs[seg.hSeg[cell]] + vBulbs[seg.vSeg[cell]] > 0;
+    }
+
+    public int support(int cell) { // unassigned, unlit cells that could still light this one
+        return hFree[seg.hSeg[cell]] + vFree[seg.vSeg[cell]];
+    }
+
+    @Override
+    public Boolean checkWalls() { // also fails for a puzzle whose own bulbs light each other
+        return violatedWalls == 0 && !givenConflict;
+    }
+
+    @Override
+    public Boolean checkNoBulbs() { // every unlit 'n' must still be reachable from an open cell
+        return starvedCells == 0;
+    }
+
+    // the buckets pick the same variables as the grid heuristics in backtrack
+
+    @Override
+    public int H1() {
+        return selector.H1();
+    }
+
+    @Override
+    public int H2() {
+        return selector.H2();
+    }
+
+    @Override
+    public int H3() {
+        return selector.H3();
+    }
+
+    @Override
+    public char[] calculateDomain(int cell) { // same rules as forward_checking.calculateDomain: lit cells can only
+                                              // be 'n', otherwise the first neighbouring wall decides
+        if (isLit(cell))
+            return DOMAIN_N;
+        if (seg.adjStart[cell] < seg.adjStart[cell + 1])
+            return wallDomain(seg.adjWalls[seg.adjStart[cell]]);
+        return DOMAIN_BN;
+    }
+
+    public int calculateOptions(int cell) { // same value as backtrack.calculateOptions
+        if (isLit(cell))
+            return 1;
+        for (int k = seg.adjStart[cell]; k < seg.adjStart[cell + 1]; k++)
+            if (wallDomain(seg.adjWalls[k]) != DOMAIN_BN)
+                return 1;
+        return 2;
+    }
+
+    public int calculateDegree(int cell) { // same value as backtrack.calculateDegree
+        int currDegree = 0;
+        for (int k = seg.adjStart[cell]; k < seg.adjStart[cell + 1]; k++)
+            currDegree += wallOpen[seg.adjWalls[k]] - 1;
+
+        // unassigned variables sharing the row and column segment (minus the variable itself)
+        return currDegree + hOpen[seg.hSeg[cell]] - 1 + vOpen[seg.vSeg[cell]] - 1;
+    }
+
+    public char[] wallDomain(int w) { // the value a wall requires of its free neighbours, if any
+                                      // (same rules as forward_checking.forwardCheckwall)
+        if (wallFree[w] == seg.wallValue[w] - wallBulbs[w])
+            return DOMAIN_B;
+        else if (wallBulbs[w] == seg.wallValue[w])
+            return DOMAIN_N;
+        return DOMAIN_BN;
+    }
+
+    @Override
+    public char[][] getAssignment() { // copy of the current assignment
+        char[][] copy = new char[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                copy[i][j] = assignment[i][j];
+        return copy;
+    }
+
+    private void propagateSegment(int[] start, int[] cells, int s) { // the free cells of the segment changed
+        for (int k = start[s]; k < start[s + 1] && consistent(); k++) {
+            int cell = cells[k];
+            if (assignment[cell / cols][cell % cols] == '_') {
+                if (isLit(cell))
+                    force(cell, 'n');
+                else if (support(cell) == 2) // free in both of its segments and no other cell can light it
+                    force(cell, 'b');
+            } else if (dark[cell] && support(cell) == 1)
+                force(lighter(cell), 'b');
+        }
+    }
+
+    private void propagateWall(int w) { // the bulbs or free cells next to the wall changed
+        char value;
+        if (wallFree[w] > 0 && wallFree[w] == seg.wallValue[w] - wallBulbs[w])
+            value = 'b';
+        else if (wallBulbs[w] == seg.wallValue[w] && wallOpen[w] > 0)
+            value = 'n';
+        else
+            return;
+        for (int k = seg.nbrStart[w]; k < seg.nbrStart[w + 1] && consistent(); k++) {
+            int cell = seg.nbrCells[k];
+            if (assignment[cell / cols][cell % cols] == '_' && (value == 'n' || !isLit(cell)))
+                force(cell, value);
+        }
+    }
+
+    private void force(int cell, char value) {
+        if (!assign(cell, value))
+            conflict = true;
+    }
+
+    private boolean consistent() {
+        return violatedWalls == 0 && starvedCells == 0 && !conflict;
+    }
+
+    private int explainWall(int w) { // the bulbs of a wall with too many, or the neighbours that can no longer be
+                                     // bulbs for one with too few. Returns the latest level
+        reasonSize = 0;
+        boolean tooMany = wallBulbs[w] > seg.wallValue[w];
+        for (int k = seg.nbrStart[w]; k < seg.nbrStart[w + 1]; k++) {
+            int cell = seg.nbrCells[k];
+            boolean bulb = lit[cell / cols][cell % cols] == 'b';
+            if (tooMany && bulb)
+                addReason(levels[cell]);
+            else if (!tooMany && !bulb && (assignment[cell / cols][cell % cols] != '_' || isLit(cell)))
+                addReason(blockedLevel(cell));
+        }
+        return latestReason();
+    }
+
+    private int explainStarved(int cell) { // the dark cell itself and whatever keeps each other member of its
+                                           // segments from holding a bulb. Returns the latest level
+        reasonSize = 0;
+        addReason(levels[cell]);
+        int h = seg.hSeg[cell];
+        int v = seg.vSeg[cell];
+        for (int k = seg.hStart[h]; k < seg.hStart[h + 1]; k++)
+            if (seg.hCells[k] != cell)
+                addReason(blockedLevel(seg.hCells[k]));
+        for (int k = seg.vStart[v]; k < seg.vStart[v + 1]; k++)
+            if (seg.vCells[k] != cell)
+                addReason(blockedLevel(seg.vCells[k]));
+        return latestReason();
+    }
+
+    private int blockedLevel(int cell) { // oldest reason for an assigned or lit cell not to be a bulb
+        int level = assignment[cell / cols][cell % cols] != '_' ? levels[cell] : Integer.MAX_VALUE;
+        if (isLit(cell))
+            level = Math.min(level, lighterLevel(cell));
+        return level;
+    }
+
+    private int lighterLevel(int cell) { // oldest of the bulbs lighting a lit cell, -1 for a bulb of the puzzle
+        int h = seg.hSeg[cell];
+        int v = seg.vSeg[cell];
+        int level = Integer.MAX_VALUE;
+        if (hBulbs[h] > 0)
+            level = Math.min(level, bulbLevel(seg.hStart, seg.hCells, h));
+        if (vBulbs[v] > 0)
+            level = Math.min(level, bulbLevel(seg.vStart, seg.vCells, v));
+        return level;
+    }
+
+    private int bulbLevel(int[] start, int[] cells, int s) { // level of the bulb lighting a segment
+        for (int k = start[s]; k < start[s + 1]; k++) {
+            int cell = cells[k];
+            if (lit[cell / cols][cell % cols] == 'b') // a rejected bulb is assigned 'b' but never lit as one
+                return levels[cell];
+        }
+        throw new IllegalStateException("bulb count out of date in segment " + s);
+    }
+
+    private void addReason(int level) {
+        if (level >= 0)
+            reason[reasonSize++] = level;
+    }
+
+    private int latestReason() {
+        int latest = -1;
+        for (int k = 0; k < reasonSize; k++)
+            latest = Math.max(latest, reason[k]);
+        return latest;
+    }
+
+    private int keepBest(int latest, int bestLatest) { // swaps the scratch lists when the new reason is better
+        if (bestSize >= 0 && latest >= bestLatest)
+            return bestLatest;
+        int[] swap = bestReason;
+        bestReason = reason;
+        reason = swap;
+        bestSize = reasonSize;
+        return latest;
+    }
+
+    private static void addLevel(long[] levels, int level) {
+        if (level >= 0)
+            levels[level >>> 6] |= 1L << level;
+    }
+
+    private int lighter(int cell) { // the only free cell in the segments of a dark cell with support 1
+        int h = seg.hSeg[cell];
+        int v = seg.vSeg[cell];
+        int[] start = hFree[h] > 0 ? seg.hStart : seg.vStart;
+        int[] cells = hFree[h] > 0 ? seg.hCells : seg.vCells;
+        int s = hFree[h] > 0 ? h : v;
+        for (int k = start[s]; k < start[s + 1]; k++) {
+            int other = cells[k];
+            if (assignment[other / cols][other % cols] == '_' && !isLit(other))
+                return other;
+        }
+        throw new IllegalStateException("support count out of date at cell " + cell);
+    }
+
+    private void enqueue(int item) {
+        if (!inQueue[item]) {
+            inQueue[item] = true;
+            queue[queued++] = item;
+        }
+    }
+
+    private void clearQueue() {
+        while (queued > 0)
+            inQueue[queue[--queued]] = false;
+    }
+
+    private void lightSegments(int cell) { // the bulb's segments hold no other bulb, every other member becomes lit
+        int h = seg.hSeg[cell];
+        int v = seg.vSeg[cell];
+        hBulbs[h]++;
+        for (int k = seg.hStart[h]; k < seg.hStart[h + 1]; k++)
+            if (seg.hCells[k] != cell && vBulbs[seg.vSeg[seg.hCells[k]]] == 0)
+                setLit(seg.hCells[k], true);
+        vBulbs[v]++;
+        for (int k = seg.vStart[v]; k < seg.vStart[v + 1]; k++)
+            if (seg.vCells[k] != cell && hBulbs[seg.hSeg[seg.vCells[k]]] == 0)
+                setLit(seg.vCells[k], true);
+    }
+
+    private void unlightSegments(int cell) { // exact reverse of lightSegments
+        int h = seg.hSeg[cell];
+        int v = seg.vSeg[cell];
+        vBulbs[v]--;
+        for (int k = seg.vStart[v]; k < seg.vStart[v + 1]; k++)
+            if (seg.vCells[k] != cell && hBulbs[seg.hSeg[seg.vCells[k]]] == 0)
+                setLit(seg.vCells[k], false);
+        hBulbs[h]--;
+        for (int k = seg.hStart[h]; k < seg.hStart[h + 1]; k++)
+            if (seg.hCells[k] != cell && vBulbs[seg.vSeg[seg.hCells[k]]] == 0)
+                setLit(seg.hCells[k], false);
+    }
+
+    private void setLit(int cell, boolean on) { // a cell changes between lit and unlit
+        int i = cell / cols;
+        int j = cell % cols;
+        lit[i][j] = on ? 'x' : assignment[i][j];
+        if (assignment[i][j] == '_') {
+            changeFree(cell, on ? -1 : 1);
+            refresh(cell);
+        } else if (on)
+            unmarkDark(cell);
+        else
+            markDark(cell);
+    }
+
+    // the counters below change together with the cell they describe, walls are rechecked as they change
+
+    private void changeFree(int cell, int delta) {
+        int h = seg.hSeg[cell];
+        int v = seg.vSeg[cell];
+        if (propagating) {
+            enqueue(h);
+            enqueue(seg.hCount + v);
+        }
+        hFree[h] += delta;
+        if (hDark[h] > 0 && (hFree[h] == 0 || hFree[h] == delta)) // the segment ran out of free cells or got one back
+            for (int k = seg.hStart[h]; k < seg.hStart[h + 1]; k++)
+                recheckSupport(seg.hCells[k]);
+        vFree[v] += delta;
+        if (vDark[v] > 0 && (vFree[v] == 0 || vFree[v] == delta))
+            for (int k = seg.vStart[v]; k < seg.vStart[v + 1]; k++)
+                recheckSupport(seg.vCells[k]);
+        for (int k = seg.adjStart[cell]; k < seg.adjStart[cell + 1]; k++) {
+            int w = seg.adjWalls[k];
+            boolean before = wallViolated(w);
+            wallFree[w] += delta;
+            recheckWall(w, before);
+            refreshWall(w);
+            if (propagating)
+                enqueue(seg.hCount + seg.vCount + w);
+        }
+    }
+
+    private void changeBulb(int cell, int delta) {
+        for (int k = seg.adjStart[cell]; k < seg.adjStart[cell + 1]; k++) {
+            int w = seg.adjWalls[k];
+            boolean before = wallViolated(w);
+            wallBulbs[w] += delta;
+            recheckWall(w, before);
+            refreshWall(w);
+            if (propagating)
+                enqueue(seg.hCount + seg.vCount + w);
+        }
+    }
+
+    private void changeOpen(int cell, int delta) { // also moves the cell itself in or out of the buckets
+        int h = seg.hSeg[cell];
+        int v = seg.vSeg[cell];
+        hOpen[h] += delta;
+        vOpen[v] += delta;
+        for (int k = seg.adjStart[cell]; k < seg.adjStart[cell + 1]; k++)
+            wallOpen[seg.adjWalls[k]] += delta;
+
+        for (int k = seg.hStart[h]; k < seg.hStart[h + 1]; k++)
+            refresh(seg.hCells[k]);
+        for (int k = seg.vStart[v]; k < seg.vStart[v + 1]; k++)
+            refresh(seg.vCells[k]);
+        for (int k = seg.adjStart[cell]; k < seg.adjStart[cell + 1]; k++)
+            refreshWall(seg.adjWalls[k]);
+    }
+
+    private void refresh(int cell) { // puts an unassigned cell in the buckets for its current options and degree
+        if (assignment[cell / cols][cell % cols] == '_' && (active == null || active[cell]))
+            selector.set(cell, calculateDegree(cell), calculateOptions(cell) == 1);
+        else
+            selector.remove(cell);
+    }
+
+    private void refreshWall(int w) {
+        for (int k = seg.nbrStart[w]; k < seg.nbrStart[w + 1]; k++)
+            refresh(seg.nbrCells[k]);
+    }
+
+    private void markDark(int cell) {
+        dark[cell] = true;
+        hDark[seg.hSeg[cell]]++;
+        vDark[seg.vSeg[cell]]++;
+        recheckSupport(cell);
+    }
+
+    private void unmarkDark(int cell) {
+        if (starved[cell]) {
+            starved[cell] = false;
+            starvedCells--;
+        }
+        dark[cell] = false;
+        hDark[seg.hSeg[cell]]--;
+        vDark[seg.vSeg[cell]]--;
+    }
+
+    private void recheckSupport(int cell) {
+        if (!dark[cell])
+            return;
+        boolean now = support(cell) == 0;
+        if (now != starved[cell]) {
+            starved[cell] = now;
+            starvedCells += now ? 1 : -1;
+        }
+    }
+
+    private boolean wallViolated(int w) { // same condition as backtrack.checkWalls
+        return wallBulbs[w] > seg.wallValue[w] || wallBulbs[w] + wallFree[w] < seg.wallValue[w];
+    }
+
+    private void recheckWall(int w, boolean before) {
+        boolean after = wallViolated(w);
+        if (before != after)
+            violatedWalls += after ? 1 : -1;
+    }
+}
@@ -0,0 +1,143 @@
+//Board that counts what the search asks of another board, for solve_metrics. Every call is passed on unchanged (see
+//board_wrapper), so the search takes exactly the same path with or without it.
+//A value is rejected by the first check that fails after assigning it (or by propagate()), the undo() that follows
+//takes it back. Any other undo() or undoTo() retreats over an assignment that had passed its checks, a backtrack.
+//The cells a check examines come from the board's own cost model, board_state.cellsExamined().
+//Each kernel counts its own calls towards the next timed one. A node makes the same calls in the same order, so a
+//counter shared by all of them would time the same few kernels over and over and never the others.
+public class metered_state extends board_wrapper {
+
+    private final solve_metrics metrics;
+    private Boolean rejected = false; // the last assignment failed a check and is about to be undone
+    private final int[] sample = new int[KERNELS]; // calls of each kernel since its last timed one
+
+    private static final int ASSIGN = 0;    // kernels, each sampled on its own
+    private static final int PROPAGATE = 1;
+    private static final int WALLS = 2;
+    private static final int NO_BULBS = 3;
+    private static final int SELECT = 4;    // H1, H2 or H3, a solve uses one of them
+    private static final int DOMAIN = 5;
+    private static final int KERNELS = 6;
+
+    public metered_state(board_state board, solve_metrics metrics) {
+        super(board);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Boolean assign(int cell, char value) {
+        long start = start(ASSIGN);
+        Boolean consistent = board.assign(cell, value);
+        metrics.checkTime += elapsed(start);
+        metrics.calls[solve_metrics.LIGHTING]++;
+        metrics.cells[solve_metrics.LIGHTING] += board.cellsExamined(solve_metrics.LIGHTING, cell, value,
+                consistent);
+        if (!consistent)
+            reject(solve_metrics.LIGHTING);
+        else if (board.getDepth() > metrics.maxDepth)
+            metrics.maxDepth = board.getDepth();
+        return consistent;
+    }
+
+    @Override
+    public void undo() {
+        if (rejected)
+            rejected = false;
+        else
+            metrics.backtracks++;
+        board.undo();
+    }
+
+    @Override
+    public void undoTo(int depth) {
+        if (rejected)
+            rejected = false;
+        else if (board.getDepth() > depth)
+            metrics.backtracks++;
+        board.undoTo(depth);
+    }
+
+    @Override
+    public Boolean propagate() {
+        long start = start(PROPAGATE);
+        Boolean consistent = board.propagate();
+        metrics.checkTime += elapsed(start);
+        if (!consistent)
+            reject(solve_metrics.PROPAGATION);
+        else if (board.getDepth() > metrics.maxDepth)
+            metrics.maxDepth = board.getDepth();
+        return consistent;
+    }
+
+    @Override
+    public Boolean checkWalls() {
+        long start = start(WALLS);
+        Boolean consistent = board.checkWalls();
+        metrics.checkTime += elapsed(start);
+        metrics.calls[solve_metrics.WALLS]++;
+        metrics.cells[solve_metrics.WALLS] += board.cellsExamined(solve_metrics.WALLS, -1, '_', consistent);
+        if (!consistent)
+            reject(solve_metrics.WALLS);
+        return consistent;
+    }
+
+    @Override
+    public Boolean checkNoBulbs() {
+        long start = start(NO_BULBS);
+        Boolean consistent = board.checkNoBulbs();
+        metrics.checkTime += elapsed(start);
+        metrics.calls[solve_metrics.NO_BULBS]++;
+        metrics.cells[solve_metrics.NO_BULBS] += board.cellsExamined(solve_metrics.NO_BULBS, -1, '_', consistent);
+        if (!consistent)
+            reject(solve_metrics.NO_BULBS);
+        return consistent;
+    }
+
+    @Override
+    public int H1() {
+        long start = start(SELECT);
+        int var = board.H1();
+        metrics.selectTime += elapsed(start);
+        return var;
+    }
+
+    @Override
+    public int H2() {
+        long start = start(SELECT);
+        int var = board.H2();
+        metrics.selectTime += elapsed(start);
+        return var;
+    }
+
+    @Override
+    public int H3() {
+        long start = start(SELECT);
+        int var = board.H3();
+        metrics.selectTime += elapsed(start);
+        return var;
+    }
+
+    @Override
+    public char[] calculateDomain(int cell) {
+        long start = start(DOMAIN);
+        char[] domain = board.calculateDomain(cell);
+        metrics.checkTime += elapsed(start);
+        return domain;
+    }
+
+    private void reject(int reason) {
+        metrics.failures[reason]++;
+        rejected = true;
+    }
+
+    private long start(int kernel) { // the clock is read on one call of the kernel in SAMPLE, 0 otherwise
+        if (++sample[kernel] < solve_metrics.SAMPLE)
+            return 0;
+        sample[kernel] = 0;
+        return System.nanoTime();
+    }
+
+    private long elapsed(long start) { // scaled to stand for the calls that were not timed
+        return start == 0 ? 0 : (System.nanoTime() - start) * solve_metrics.SAMPLE;
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+//Parallel search inside a single puzzle. The first `split` variables chosen by the heuristic are branched on as
+//fork-join tasks, every consistent value becoming its own subtree, and the subtrees below that depth are searched by
+//the normal sequential recursion. Idle workers steal subtrees from busy ones.
+//A task rebuilds its board_state by replaying the assignments that lead to its subtree, so tasks share nothing but
+//the puzzle, the stop flag and the result. The first subtree to find a solution sets the stop flag (the puzzle's own,
+//so a time limit or a cancel() reaches every worker too) and every other worker gives up at its next node. Which
+//solution is found first can differ from the sequential search when the puzzle has several, and the node count is
+//the total over all workers.
+//When solutions are counted (--count, see solution_counter) the subtrees below the split depth are counted instead of
+//solved, and the first subtree to find a solution provides the one that is shown.
+//to run: java forward_checking 48W.txt H3 --split=4 [--threads=N]
+public class parallel_search {
+
+    private final String solver;
+    private final char[][] csp;
+    private final solve_context settings;
+    private final int split;
+    private int presolved = 0;
+
+    private final AtomicBoolean stopped;
+    private final AtomicReference<char[][]> solution = new AtomicReference<char[][]>();
+    private final AtomicLong nodeCount = new AtomicLong();
+    private final solution_counter counter; // null unless solutions are counted
+
+    private parallel_search(String solver, char[][] csp, solve_context settings, int split) {
+        this.solver = solver;
+        this.settings = settings;
+        stopped = settings.stopFlag();
+        counter = settings.countLimit > 0 ? new solution_counter(settings.countLimit) : null;
+        if (settings.presolve) { // every subtree starts from the reduced puzzle
+            csp = backtrack.copyArray(csp);
+            presolved = presolve.reduce(csp);
+        }
+        this.csp = csp;
+        this.split = split;
+    }
+
+    public static void solveAll(String solver, Iterable<char[][]> problems, solve_context settings, int threads,
+                                int split, result_writer out) {
+        ForkJoinPool pool = new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+        try {
+            int i = 0;
+            for (char[][] problem : problems) {
+                solve_context context = settings.copy(settings.heuristic, new AtomicBoolean());
+                long startTime = System.nanoTime();
+                char[][] solution;
+                if (settings.cache != null)
+                    solution = settings.cache.solve(problem, context, (csp, c) -> solve(solver, csp, c, split, pool));
+                else
+                    solution = solve(solver, problem, context, split, pool);
+                long time = System.nanoTime() - startTime;
+                if (context.metrics != null)
+                    context.metrics.finish(context, solution);
+                out.write(i, problem, solution, context.nodeCount, time, context);
+                i++;
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static char[][] solve(String solver, char[][] csp, solve_context context, int split,
+                                 ForkJoinPool pool) { // formatted like backtrackingSearch, null if unsolvable.
+        context.startLimits();
+        parallel_search search = new parallel_search(solver, csp, context, split); // The nodes and presolved cells
+        char[][] solution = search.solve(pool);                                   // are left in context
+        context.nodeCount = (int) search.nodeCount.get();
+        context.presolved = search.presolved;
+        return solution;
+    }
+
+    private char[][] solve(ForkJoinPool pool) {
+        pool.invoke(new subtree(new int[0], new char[0]));
+        if (counter != null)
+            return counter.finish(settings);
+        char[][] assignment = solution.get();
+        if (assignment != null)
+            backtrack.formatSolution(assignment);
+        return assignment;
+    }
+
+    private class subtree extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] cells;   // assignments leading to this subtree, in the order they were made
+        private final char[] values;
+
+        subtree(int[] cells, char[] values) {
+            this.cells = cells;
+            this.values = values;
+        }
+
+        @Override
+        protected void compute() {
+            if (stopped.get())
+                return;
+            solve_context context = settings.copy(settings.heuristic, stopped);
+            explore(context);
+            if (context.metrics != null) // counted once per task, the children merge their own
+                context.metrics.merge();
+            if (context.hasTimedOut()) // the whole puzzle gives up
+                settings.cancel();
+        }
+
+        private void explore(solve_context context) {
+            board_state state = board_wrapper.wrap(board_state.create(settings.board, csp), context);
+            if (!(state.checkWalls() && state.checkNoBulbs())) // the puzzle or presolve is already inconsistent
+                return;
+            if (context.propagate) {
+                state.enablePropagation();
+                if (!state.propagate())
+                    return;
+            }
+            for (int k = 0; k < cells.length; k++) { // consistent, it was checked when the subtree was created
+                state.assign(cells[k], values[k]);
+                if (context.propagate)
+                    state.propagate();
+            }
+
+            if (cells.length < split) {
+                ArrayList<subtree> children = branch(context, state);
+                nodeCount.addAndGet(context.nodeCount);
+                invokeAll(children);
+            } else if (counter != null) {
+                counter.countAll(context, state, !solver.equals("backtrack"));
+                nodeCount.addAndGet(context.nodeCount);
+            } else {
+                Boolean found = solver.equals("backtrack") ? backtrack.search(context, state)
+                        : forward_checking.search(context, state);
+                nodeCount.addAndGet(context.nodeCount);
+                if (found)
+                    finish(context, state);
+            }
+        }
+
+        private ArrayList<subtree> branch(solve_context context, board_state state) { // one subtree per value
+            ArrayList<subtree> children = new ArrayList<subtree>(2);
+            int var = solver.equals("backtrack") ? backtrack.selectUnassignedVariable(context, state)
+                    : forward_checking.selectUnassignedVariable(context, state);
+            if (var < 0) { // solved before reaching the split depth
+                finish(context, state);
+                return children;
+            }
+            char[] domain = solver.equals("backtrack") ? backtrack.orderDomainValues
+                    : forward_checking.forwardCheck(var, state);
+            for (char value : domain) {
+                context.nodeCount++;
+                int depth = state.getDepth();
+                if (backtrack.partialAssignment(var, value, state)
+                        && (!context.propagate || state.propagate())) {
+                    int[] childCells = java.util.Arrays.copyOf(cells, cells.length + 1);
+                    char[] childValues = java.util.Arrays.copyOf(values, values.length + 1);
+                    childCells[cells.length] = var;
+                    childValues[values.length] = value;
+                    children.add(new subtree(childCells, childValues));
+                }
+                state.undoTo(depth);
+            }
+            return children;
+        }
+
+        private void finish(solve_context context, board_state state) {
+            if (counter != null)
+                counter.found(context, state);
+            else if (solution.compareAndSet(null, state.getAssignment()))
+                stopped.set(true);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+//Portfolio mode: several solver and heuristic configurations race on the same puzzle, and the first one to finish
+//decides the answer. A finished search is conclusive either way (a solution, or proof that there is none), so the
+//others are then stopped through their solve_context flags and give up at their next node.
+//Configurations are solver:heuristic pairs, "all" is every solver with H1, H2 and H3. With --seeds each configuration
+//also runs once per seed, a seed changes which value is tried first for some variables (see solve_context.order).
+//With --timeout (milliseconds) or --node-limit every runner is limited on its own: a runner that runs out gives up
+//alone and the others race on. The puzzle is reported as timed out only when every runner ran out.
+//to run: java portfolio lightupPuzzles.txt forward_checking:H1,backtrack:H3 [--seeds=0,1,2] [--board=chars|bits]
+//        [--output=text|jsonl|csv] [--timeout=MS] [--node-limit=N]
+public class portfolio {
+
+    private static class config {
+        final String solver;
+        final String heuristic;
+        final long seed;
+
+        config(String solver, String heuristic, long seed) {
+            this.solver = solver;
+            this.heuristic = heuristic;
+            this.seed = seed;
+        }
+
+        public String toString() {
+            return solver + " " + heuristic + (seed != 0 ? " seed " + seed : "");
+        }
+    }
+
+    private static class result {
+        config winner;
+        char[][] solution;
+        int nodesVisited;
+        Boolean stopped; // gave up because another configuration finished first, or a limit ran out
+        solve_context context;
+    }
+
+    public static void main(String args[]) {
+        puzzle_reader problems = puzzle_reader.open(args[0]);
+        String board = solver_options.get(args, "board", "chars");
+        ArrayList<config> configs = parseConfigs(args.length >= 2 ? args[1] : "all",
+                solver_options.get(args, "seeds", "0"));
+        String output = solver_options.get(args, "output", "text");
+        long timeLimit = Long.parseLong(solver_options.get(args, "timeout", "0")) * 1_000_000;
+        long nodeLimit = Long.parseLong(solver_options.get(args, "node-limit", "0"));
+
+        if (configs == null || !board_state.isBoard(board) || !result_writer.isFormat(output) || timeLimit < 0
+                || nodeLimit < 0) {
+            System.out.println("Invalid arguements.");
+            return;
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(configs.size()); // one thread per runner, so a slow
+                                                                             // one never blocks the others
+        result_writer out = result_writer.create(output);
+        try {
+            int i = 0;
+            for (char[][] problem : problems) {
+                long startTime = System.nanoTime();
+                result r = race(pool, configs, problem, board, timeLimit, nodeLimit);
+                long time = System.nanoTime() - startTime;
+                out.write(i, problem, r.solution, r.nodesVisited, time, r.context, "Winner",
+                        r.context.hasTimedOut() && r.solution == null ? "none" : r.winner.toString());
+                i++;
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            out.flush();
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        } finally {
+            out.flush();
+            pool.shutdownNow();
+        }
+    }
+
+    private static result race(ExecutorService pool, ArrayList<config> configs, char[][] problem, String board,
+                               long timeLimit, long nodeLimit) throws InterruptedException, ExecutionException {
+        ExecutorCompletionService<result> finished = new ExecutorCompletionService<result>(pool);
+        ArrayList<solve_context> contexts = new ArrayList<solve_context>(); // a flag each, so a runner that runs
+        for (config c : configs) {                                           // out of its limit stops only itself
+            solve_context context = new solve_context(c.heuristic, board, new AtomicBoolean());
+            context.seed = c.seed;
+            context.timeLimit = timeLimit;
+            context.nodeLimit = nodeLimit;
+            contexts.add(context);
+            finished.submit(() -> run(c, problem, context));
+        }
+
+        result first = null;
+        result timedOut = null; // reported when every runner ran out of its limit
+
+        for (int k = 0; k < configs.size(); k++) { // wait for the losers too, so they are off the pool before the
+                                                   // next puzzle starts
+            result r = finished.take().get();
+            if (first == null && !r.stopped) {
+                first = r;
+                for (solve_context context : contexts)
+                    context.stop();
+            } else if (r.context.hasTimedOut())
+                timedOut = r;
+        }
+        return first != null ? first : timedOut;
+    }
+
+    private static result run(config c, char[][] problem, solve_context context) {
+        result r = new result();
+        r.winner = c;
+        if (c.solver.equals("backtrack"))
+            r.solution = backtrack.backtrackingSearch(problem, context);
+        else
+            r.solution = forward_checking.backtrackingSearch(problem, context);
+        r.nodesVisited = context.nodeCount;
+        r.stopped = r.solution == null && context.stopFlag().get(); // read only, isStopped() could still cancel
+        r.context = context;
+        return r;
+    }
+
+    private static ArrayList<config> parseConfigs(String list, String seeds) { // null if a configuration is invalid
+        if (list.equals("all"))
+            list = "forward_checking:H1,forward_checking:H2,forward_checking:H3,backtrack:H1,backtrack:H2,backtrack:H3";
+        ArrayList<config> configs = new ArrayList<config>();
+        for (String seed : seeds.split(","))
+            for (String pair : list.split(",")) {
+                String[] parts = pair.split(":");
+                if (parts.length != 2 || !(parts[0].equals("backtrack") || parts[0].equals("forward_checking"))
+                        || !(parts[1].equals("H1") || parts[1].equals("H2") || parts[1].equals("H3")))
+                    return null;
+                configs.add(new config(parts[0], parts[1], Long.parseLong(seed)));
+            }
+        return configs;
+    }
+}
@@ -0,0 +1,93 @@
+//Deductions made on the parsed puzzle before any search, so that easy puzzles never reach the recursion.
+//The rules are applied until none of them changes anything:
+//  - a lit cell cannot hold a bulb, so it is 'n'
+//  - a wall that already has its bulbs makes every other unassigned neighbour 'n' (all of them for a 0)
+//  - a wall whose unlit, unassigned neighbours are exactly the bulbs it still needs makes them all bulbs
+//  - an unlit cell that only one unlit, unassigned cell (possibly itself) can still light makes that cell a bulb
+//Every deduction holds in any solution, so the reduced puzzle has the same solutions as the original one. A puzzle
+//that turns out inconsistent is left for the search to reject.
+//to run: java forward_checking lightupPuzzles.txt H1 --presolve=on
+public class presolve {
+
+    private static final int[][] DIRECTIONS = { { -1, 0 }, { 1, 0 }, { 0, -1 }, { 0, 1 } }; // top, bottom, left, right
+
+    public static int reduce(char[][] puzzle) { // fills in forced values in place, returns how many cells it fixed
+        int fixed = 0;
+        Boolean changed = true;
+        while (changed) {
+            changed = false;
+            char[][] lightingApplied = backtrack.copyArray(puzzle);
+            if (!backtrack.applyLighting(lightingApplied))
+                return fixed;
+
+            // no-bulb deductions do not change the lighting, so they can all be made in one pass
+            for (int i = 0; i < puzzle.length; i++)
+                for (int j = 0; j < puzzle[i].length; j++)
+                    if (puzzle[i][j] == '_' && (lightingApplied[i][j] == 'x' || nextToFullWall(i, j, puzzle))) {
+                        puzzle[i][j] = 'n';
+                        if (lightingApplied[i][j] == '_')
+                            lightingApplied[i][j] = 'n';
+                        fixed++;
+                    }
+
+            // a new bulb changes the lighting, so the pass starts over after each one
+            int[] bulb = findForcedBulb(puzzle, lightingApplied);
+            if (bulb != null) {
+                puzzle[bulb[0]][bulb[1]] = 'b';
+                fixed++;
+                changed = true;
+            }
+        }
+        return fixed;
+    }
+
+
+    private static Boolean nextToFullWall(int i, int j, char[][] puzzle) { // a neighbouring wall has all its bulbs
+        for (int[] d : DIRECTIONS) {
+            int wi = i + d[0];
+            int wj = j + d[1];
+            if (inside(wi, wj, puzzle) && backtrack.isAWall(puzzle[wi][wj])
+                    && countAround(wi, wj, puzzle, puzzle, 'b') >= puzzle[wi][wj] - '0')
+                return true;
+        }
+        return false;
+    }
+
+    private static int[] findForcedBulb(char[][] puzzle, char[][] lightingApplied) { // null if no rule applies
+        for (int i = 0; i < puzzle.length; i++)
+            for (int j = 0; j < puzzle[i].length; j++) {
+                if (backtrack.isAWall(puzzle[i][j])) {
+                    int needed = puzzle[i][j] - '0' - countAround(i, j, puzzle, puzzle, 'b');
+                    if (needed > 0 && countAround(i, j, puzzle, lightingApplied, '_') == needed)
+                        for (int[] d : DIRECTIONS)
+                            if (inside(i + d[0], j + d[1], puzzle) && lightingApplied[i + d[0]][j + d[1]] == '_')
+                                return new int[] { i + d[0], j + d[1] };
+                } else if (lightingApplied[i][j] == 'n' || lightingApplied[i][j] == '_') { // unlit
+                    int[] lighter = lightingApplied[i][j] == '_' ? new int[] { i, j } : null;
+                    int lighters = lighter != null ? 1 : 0; // an unassigned cell can light itself
+                    for (int[] d : DIRECTIONS)
+                        for (int posI = i + d[0], posJ = j + d[1]; inside(posI, posJ, puzzle)
+                                && !backtrack.isAWall(puzzle[posI][posJ]); posI += d[0], posJ += d[1])
+                            if (lightingApplied[posI][posJ] == '_') {
+                                lighter = new int[] { posI, posJ };
+                                lighters++;
+                            }
+                    if (lighters == 1)
+                        return lighter;
+                }
+            }
+        return null;
+    }
+
+    private static int countAround(int i, int j, char[][] puzzle, char[][] grid, char value) { // neighbours of
+        int count = 0;                                                                          // (i, j) in grid
+        for (int[] d : DIRECTIONS)
+            if (inside(i + d[0], j + d[1], puzzle) && grid[i + d[0]][j + d[1]] == value)
+                count++;
+        return count;
+    }
+
+    private static Boolean inside(int i, int j, char[][] puzzle) {
+        return i >= 0 && i < puzzle.length && j >= 0 && j < puzzle[i].length;
+    }
+}
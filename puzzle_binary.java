@@ -0,0 +1,254 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+//Compact binary container for puzzle sets. puzzle_reader recognises it by its header, so both solvers (and every
+//other program reading puzzles through puzzle_reader) accept it wherever a .txt file is accepted, and a puzzle loads
+//with a few shifts per cell instead of line parsing. Layout (big-endian):
+//  header  "LUPB", format version (1 byte), number of puzzles (int)
+//  puzzle  rows and cols (unsigned shorts), flags (1 byte, bit 0: a solution follows)
+//          3-bit cell codes row by row, packed from the low bits of each byte up: walls '0'-'4' are 0-4, '_' is 5,
+//          and bulbs and no-bulbs given by the puzzle ('b', 'n') are 6 and 7
+//          the solution, when present: one bit per cell (set for a bulb) packed the same way
+//The converter keeps the solutions that .txt files list in comments after a puzzle ("#  Solution" and the rows,
+//each behind a #) and writes them back the same way.
+//to convert: java puzzle_binary lightupPuzzles.txt lightupPuzzles.lub (or the other way around)
+public class puzzle_binary {
+
+    public static final byte[] MAGIC = { 'L', 'U', 'P', 'B' };
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = MAGIC.length + 1 + 4;
+    public static final int RECORD_HEADER_SIZE = 2 + 2 + 1;
+
+    private static final int HAS_SOLUTION = 1;
+    private static final char[] CODES = { '0', '1', '2', '3', '4', '_', 'b', 'n' }; // character of each cell code
+
+    public static class entry {
+        public final char[][] puzzle;
+        public final char[][] solution; // formatted like backtrackingSearch's solutions, null if not stored
+
+        public entry(char[][] puzzle, char[][] solution) {
+            this.puzzle = puzzle;
+            this.solution = solution;
+        }
+    }
+
+    public static void main(String args[]) {
+        try {
+            if (isBinary(Path.of(args[0])))
+                toText(args[0], args[1]);
+            else
+                toBinary(args[0], args[1]);
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+
+    public static Boolean isBinary(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(MAGIC.length);
+            while (start.hasRemaining() && channel.read(start) >= 0)
+                ;
+            return !start.hasRemaining() && isHeader(start.flip());
+        }
+    }
+
+    public static Boolean isHeader(ByteBuffer in) { // the buffer starts with MAGIC, its position is unchanged
+        if (in.remaining() < MAGIC.length)
+            return false;
+        for (int k = 0; k < MAGIC.length; k++)
+            if (in.get(in.position() + k) != MAGIC[k])
+                return false;
+        return true;
+    }
+
+    public static int readHeader(ByteBuffer in) { // returns the number of puzzles that follow
+        in.position(in.position() + MAGIC.length);
+        int version = in.get();
+        if (version != VERSION)
+            throw new IllegalStateException("unsupported puzzle file version " + version);
+        return in.getInt();
+    }
+
+    public static int recordSize(ByteBuffer in) { // bytes of the puzzle starting at the buffer's position, which
+        int p = in.position();                    // must hold at least RECORD_HEADER_SIZE bytes
+        int cells = Short.toUnsignedInt(in.getShort(p)) * Short.toUnsignedInt(in.getShort(p + 2));
+        int size = RECORD_HEADER_SIZE + codeBytes(cells);
+        if ((in.get(p + 4) & HAS_SOLUTION) != 0)
+            size += (cells + 7) >>> 3;
+        return size;
+    }
+
+    public static entry read(ByteBuffer in, Boolean withSolution) { // the solution is skipped unless asked for
+        int rows = Short.toUnsignedInt(in.getShort());
+        int cols = Short.toUnsignedInt(in.getShort());
+        int flags = in.get();
+        char[][] puzzle = new char[rows][cols];
+        int bits = 0; // cell codes not yet used, lowest first
+        int available = 0;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++) {
+                if (available < 3) {
+                    bits |= (in.get() & 0xFF) << available;
+                    available += 8;
+                }
+                puzzle[i][j] = CODES[bits & 7];
+                bits >>>= 3;
+                available -= 3;
+            }
+        char[][] solution = null;
+        if ((flags & HAS_SOLUTION) != 0) {
+            int solutionBytes = (rows * cols + 7) >>> 3;
+            if (withSolution) {
+                solution = new char[rows][cols];
+                int base = in.position();
+                for (int cell = 0; cell < rows * cols; cell++) {
+                    char c = puzzle[cell / cols][cell % cols];
+                    Boolean bulb = (in.get(base + (cell >>> 3)) & 1 << (cell & 7)) != 0;
+                    solution[cell / cols][cell % cols] = backtrack.isAWall(c) ? c : bulb ? 'b' : '_';
+                }
+            }
+            in.position(in.position() + solutionBytes);
+        }
+        return new entry(puzzle, solution);
+    }
+
+    public static ByteBuffer write(entry e) { // one puzzle, ready to be written
+        int rows = e.puzzle.length;
+        int cols = e.puzzle[0].length;
+        if (rows > 0xFFFF || cols > 0xFFFF)
+            throw new IllegalArgumentException("puzzle too large: " + rows + " x " + cols);
+        int cells = rows * cols;
+        ByteBuffer out = ByteBuffer.allocate(RECORD_HEADER_SIZE + codeBytes(cells)
+                + (e.solution != null ? (cells + 7) >>> 3 : 0));
+        out.putShort((short) rows).putShort((short) cols).put((byte) (e.solution != null ? HAS_SOLUTION : 0));
+        int bits = 0;
+        int pending = 0;
+        for (int i = 0; i < rows; i++) {
+            if (e.puzzle[i].length != cols)
+                throw new IllegalArgumentException("row " + (i + 1) + " is not " + cols + " cells long");
+            for (int j = 0; j < cols; j++) {
+                bits |= code(e.puzzle[i][j]) << pending;
+                pending += 3;
+                if (pending >= 8) {
+                    out.put((byte) bits);
+                    bits >>>= 8;
+                    pending -= 8;
+                }
+            }
+        }
+        if (pending > 0)
+            out.put((byte) bits);
+        if (e.solution != null) {
+            byte[] bitmap = new byte[(cells + 7) >>> 3];
+            for (int cell = 0; cell < cells; cell++)
+                if (e.solution[cell / cols][cell % cols] == 'b')
+                    bitmap[cell >>> 3] |= 1 << (cell & 7);
+            out.put(bitmap);
+        }
+        return out.flip();
+    }
+
+    private static int code(char c) {
+        for (int k = 0; k < CODES.length; k++)
+            if (CODES[k] == c)
+                return k;
+        throw new IllegalArgumentException("cell '" + c + "' has no binary code");
+    }
+
+    private static int codeBytes(int cells) {
+        return (cells * 3 + 7) >>> 3;
+    }
+
+    private static void toBinary(String textFile, String binaryFile) throws IOException { // streams both files
+        try (BufferedReader in = Files.newBufferedReader(Path.of(textFile), StandardCharsets.ISO_8859_1);
+             FileChannel out = create(binaryFile)) {
+            int count = 0;
+            char[][] puzzle = null;
+            char[][] solution = null;
+            String data;
+            while ((data = in.readLine()) != null) {
+                if (data.isEmpty())
+                    continue;
+                if (data.charAt(0) == '#') {
+                    if (puzzle != null && solution == null && data.substring(1).trim().equals("Solution"))
+                        solution = readSolution(in, puzzle.length);
+                    continue;
+                }
+                if (puzzle != null) {
+                    writeFully(out, write(new entry(puzzle, solution)));
+                    count++;
+                }
+                String[] dimensions = data.split(" ");
+                puzzle = new char[Integer.parseInt(dimensions[0])][];
+                solution = null;
+                for (int i = 0; i < puzzle.length; i++)
+                    puzzle[i] = in.readLine().toCharArray();
+            }
+            if (puzzle != null) {
+                writeFully(out, write(new entry(puzzle, solution)));
+                count++;
+            }
+            finish(out, count);
+        }
+    }
+
+    public static void writeFile(String fileName, Iterable<entry> entries) throws IOException {
+        try (FileChannel out = create(fileName)) {
+            int count = 0;
+            for (entry e : entries) {
+                writeFully(out, write(e));
+                count++;
+            }
+            finish(out, count);
+        }
+    }
+
+    private static FileChannel create(String fileName) throws IOException { // room is left for the header
+        FileChannel out = FileChannel.open(Path.of(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writeFully(out, ByteBuffer.allocate(HEADER_SIZE));
+        return out;
+    }
+
+    private static void finish(FileChannel out, int count) throws IOException { // the header, once the count is known
+        out.position(0);
+        writeFully(out, ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put((byte) VERSION).putInt(count).flip());
+    }
+
+    private static char[][] readSolution(BufferedReader in, int rows) throws IOException { // rows behind a #
+        char[][] solution = new char[rows][];
+        for (int i = 0; i < rows; i++)
+            solution[i] = in.readLine().substring(1).trim().toCharArray();
+        return solution;
+    }
+
+    private static void toText(String binaryFile, String textFile) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(Path.of(textFile), StandardCharsets.ISO_8859_1)) {
+            for (entry e : puzzle_reader.open(binaryFile).entries()) {
+                out.write("# Start of puzzle\n" + e.puzzle.length + " " + e.puzzle[0].length + "\n");
+                for (char[] row : e.puzzle)
+                    out.write(new String(row) + "\n");
+                out.write("# End of puzzle\n");
+                if (e.solution != null) {
+                    out.write("#  Solution\n");
+                    for (char[] row : e.solution)
+                        out.write("#   " + new String(row) + "\n");
+                }
+                out.write("\n");
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer data) throws IOException {
+        while (data.hasRemaining())
+            out.write(data);
+    }
+}
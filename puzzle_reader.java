@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+//Streaming version of getProblems for puzzle files too large to load at once. The file is memory-mapped a window at
+//a time and parsed as the puzzles are requested, so solving overlaps with parsing and only the puzzles in use are on
+//the heap, whatever the size of the file. The format is the same: a "rows cols" line, then the rows, with puzzles
+//separated by at least one line that is empty or starts with #. Files in the binary format of puzzle_binary are
+//recognised by their header and decoded instead of parsed.
+//  for (char[][] problem : puzzle_reader.open("lightupPuzzles.txt")) ...
+//  puzzle_reader.open("lightupPuzzles.txt").stream().parallel()...
+public class puzzle_reader implements Iterable<char[][]> {
+
+    private static final long WINDOW = 64 << 20; // bytes mapped at a time, a line may not be longer
+
+    private final FileChannel channel; // null when the file could not be opened
+    private final long size;
+    private MappedByteBuffer window;
+    private long windowStart = 0; // file position of window[0]
+    private Boolean iterated = false;
+    private final Boolean binary;  // a puzzle_binary file
+    private int unread = 0;        // puzzles left in a binary file
+
+    private puzzle_reader(FileChannel channel, long size) {
+        this.channel = channel;
+        this.size = size;
+        window = channel != null ? map(0) : null;
+        binary = window != null && puzzle_binary.isHeader(window);
+        if (binary)
+            unread = puzzle_binary.readHeader(window);
+    }
+
+    public static puzzle_reader open(String fileName) { // the file is closed once the last puzzle has been read
+        try {
+            FileChannel channel = FileChannel.open(Path.of(fileName), StandardOpenOption.READ);
+            return new puzzle_reader(channel, channel.size());
+        } catch (IOException e) { // like getProblems, a file that cannot be read has no puzzles
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+            return new puzzle_reader(null, 0);
+        }
+    }
+
+    @Override
+    public Iterator<char[][]> iterator() { // the file can only be read once
+        Iterator<puzzle_binary.entry> entries = entries(false);
+        return new Iterator<char[][]>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public char[][] next() {
+                return entries.next().puzzle;
+            }
+        };
+    }
+
+    public Iterable<puzzle_binary.entry> entries() { // puzzles with the solutions a binary file stores, if any
+        return () -> entries(true);
+    }
+
+    private Iterator<puzzle_binary.entry> entries(Boolean withSolutions) {
+        if (iterated)
+            throw new IllegalStateException("puzzle_reader can only be iterated once");
+        iterated = true;
+        return new Iterator<puzzle_binary.entry>() {
+            private puzzle_binary.entry next = readEntry(withSolutions);
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public puzzle_binary.entry next() {
+                if (next == null)
+                    throw new NoSuchElementException();
+                puzzle_binary.entry entry = next;
+                next = readEntry(withSolutions);
+                return entry;
+            }
+        };
+    }
+
+    public Stream<char[][]> stream() { // puzzles in file order
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private puzzle_binary.entry readEntry(Boolean withSolutions) { // next puzzle in the file, null (and the file
+        if (binary)                                                // closed) after the last one
+            return readRecord(withSolutions);
+        String data;
+        while ((data = readLine()) != null && (data.isEmpty() || data.charAt(0) == '#'))
+            ;
+        if (data == null) {
+            close();
+            return null;
+        }
+        String[] dimensions = data.split(" ");
+        char[][] problem = new char[Integer.parseInt(dimensions[0])][Integer.parseInt(dimensions[1])];
+        for (int rowIndex = 0; rowIndex < problem.length; rowIndex++) {
+            data = readLine();
+            if (data == null || data.isEmpty() || data.charAt(0) == '#')
+                throw new IllegalStateException("puzzle ends after " + rowIndex + " of " + problem.length + " rows");
+            problem[rowIndex] = data.toCharArray();
+        }
+        return new puzzle_binary.entry(problem, null);
+    }
+
+    private puzzle_binary.entry readRecord(Boolean withSolutions) {
+        if (unread == 0) {
+            close();
+            return null;
+        }
+        if (window.remaining() < puzzle_binary.RECORD_HEADER_SIZE
+                || window.remaining() < puzzle_binary.recordSize(window)) { // the record goes on in the next window
+            window = map(windowStart + window.position());
+            if (window.remaining() < puzzle_binary.RECORD_HEADER_SIZE
+                    || window.remaining() < puzzle_binary.recordSize(window))
+                throw new IllegalStateException("puzzle record cut short at " + windowStart);
+        }
+        unread--;
+        return puzzle_binary.read(window, withSolutions);
+    }
+
+    private String readLine() { // without the line terminator, null at the end of the file
+        if (channel == null || windowStart + window.position() >= size)
+            return null;
+        int end = findNewline();
+        if (end < 0 && windowStart + window.limit() < size) { // the line goes on in the next window
+            window = map(windowStart + window.position());
+            end = findNewline();
+            if (end < 0 && window.limit() == WINDOW)
+                throw new IllegalStateException("line longer than " + WINDOW + " bytes at " + windowStart);
+        }
+        int start = window.position();
+        int next = end < 0 ? window.limit() : end + 1;
+        if (end < 0)
+            end = window.limit();
+        if (end > start && window.get(end - 1) == '\r')
+            end--;
+        char[] line = new char[end - start];
+        for (int k = 0; k < line.length; k++)
+            line[k] = (char) (window.get(start + k) & 0xFF);
+        window.position(next);
+        return new String(line);
+    }
+
+    private int findNewline() { // index of the next '\n' in the window, -1 if there is none
+        for (int k = window.position(); k < window.limit(); k++)
+            if (window.get(k) == '\n')
+                return k;
+        return -1;
+    }
+
+    private MappedByteBuffer map(long position) {
+        try {
+            windowStart = position;
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, size - position));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void close() {
+        try {
+            if (channel != null)
+                channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
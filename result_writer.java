@@ -0,0 +1,184 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+//Output of the solvers' results. Everything goes through one large buffer that is written out when it fills up and
+//when the run ends, instead of one console write per character, so printing costs next to nothing even at thousands
+//of puzzles per second. Formats:
+//  text   the usual report: puzzle, solution, nodes visited and time of every puzzle (the default)
+//  jsonl  one JSON object per puzzle: puzzle number, size, solved, status, nodes, time, presolved cells, the rows of
+//         the puzzle ("grid") and of its solution
+//  csv    the statistics only, one row per puzzle after a header row
+//Solvers that report more than the nodes and time (the portfolio winner, SAT statistics) pass them as details, which
+//become extra fields in jsonl and extra columns in csv. Notes about the whole run (cache hits) are part of the text
+//report, with the other formats they go to standard error so the output stays machine-readable.
+//The status of a puzzle is solved, unsolvable or timed out (a time or node limit ran out, see solve_context), the
+//text report shows the last as "Timed out" where the solution would be.
+//When solutions are counted (--count, see solution_counter) every format also has the count and whether it is exact,
+//the text report shows a count the search stopped at as "2 or more".
+//to run: java forward_checking lightupPuzzles.txt H1 --output=jsonl
+public class result_writer {
+
+    private static final int BUFFER = 1 << 20; // chars buffered before the console is written to
+
+    private final String format;
+    private final Writer out;
+    private Boolean headerWritten = false; // csv only
+
+    private result_writer(String format, Writer out) {
+        this.format = format;
+        this.out = out;
+    }
+
+    public static Boolean isFormat(String format) {
+        return format.equals("text") || format.equals("jsonl") || format.equals("csv");
+    }
+
+    public static result_writer create(String format) { // a writer on standard output
+        return new result_writer(format, new BufferedWriter(new OutputStreamWriter(System.out,
+                StandardCharsets.ISO_8859_1), BUFFER)); // like puzzle_reader, one byte per cell
+    }
+
+    public void write(int i, char[][] problem, char[][] solution, long nodesVisited, long time,
+                      solve_context context, String... details) { // details are name, value pairs; the context
+        try {                                                     // (may be null) gives the presolved cells and status
+            int presolved = context != null && context.presolve ? context.presolved : -1;
+            String status = context != null ? context.status(solution)
+                    : solution != null ? solve_context.SOLVED : solve_context.UNSOLVABLE;
+            long solutions = context != null && context.countLimit > 0 ? context.solutions : -1;
+            Boolean exact = solutions >= 0 && solutions < context.countLimit && !context.hasTimedOut();
+            if (format.equals("text")) {
+                out.write("Solving puzzle #" + (i + 1) + "...\n");
+                text(problem, solution, status, i, nodesVisited, time);
+                if (presolved >= 0)
+                    out.write("Cells fixed before search:\n" + presolved + "\n\n");
+                if (solutions >= 0)
+                    out.write("Solutions:\n" + solutions + (exact ? "" : " or more") + "\n\n");
+                for (int k = 0; k < details.length; k += 2)
+                    out.write(details[k] + ":\n" + details[k + 1] + "\n\n");
+            } else if (format.equals("jsonl"))
+                json(i, problem, solution, status, nodesVisited, time, presolved, solutions, exact, details);
+            else
+                csv(i, problem, solution, status, nodesVisited, time, presolved, solutions, exact, details);
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+
+    public void note(String name, String value) { // a fact about the whole run
+        try {
+            if (format.equals("text"))
+                out.write(name + ":\n" + value + "\n\n");
+            else {
+                flush();
+                System.err.println(name + ": " + value);
+            }
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+
+    public void flush() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+
+    private void text(char[][] problem, char[][] solution, String status, int i, long nodesVisited, long time)
+            throws IOException { // the report of printSolution
+        out.write("------------------- Puzzle " + (i + 1) + " -------------------\n\n");
+        out.write("Puzzle:\n");
+        grid(problem);
+        out.write("\nSolution:\n");
+        if (solution != null)
+            grid(solution);
+        else
+            out.write(status.equals(solve_context.TIMED_OUT) ? "Timed out\n" : "Unsolvable\n");
+        out.write("\nNodes visited:\n" + nodesVisited + "\n");
+        out.write("\nTimes (nanoseconds):\n" + time + "\n\n");
+    }
+
+    private void grid(char[][] c) throws IOException { // the text of printProblem
+        out.write(c.length + " x " + c[0].length + "\n");
+        for (char[] row : c) {
+            out.write(row);
+            out.write('\n');
+        }
+    }
+
+    private void json(int i, char[][] problem, char[][] solution, String status, long nodesVisited, long time,
+                      int presolved, long solutions, Boolean exact, String[] details) throws IOException {
+        out.write("{\"puzzle\":" + (i + 1) + ",\"rows\":" + problem.length + ",\"cols\":" + problem[0].length
+                + ",\"solved\":" + (solution != null) + ",\"status\":\"" + status + "\",\"nodes\":" + nodesVisited
+                + ",\"time_ns\":" + time);
+        if (presolved >= 0)
+            out.write(",\"presolved\":" + presolved);
+        if (solutions >= 0)
+            out.write(",\"solutions\":" + solutions + ",\"exact\":" + exact);
+        for (int k = 0; k < details.length; k += 2) {
+            out.write(",\"" + key(details[k]) + "\":");
+            string(details[k + 1]);
+        }
+        out.write(",\"grid\":");
+        rows(problem);
+        if (solution != null) {
+            out.write(",\"solution\":");
+            rows(solution);
+        }
+        out.write("}\n");
+    }
+
+    private void rows(char[][] c) throws IOException { // ["row","row",...]
+        out.write('[');
+        for (int r = 0; r < c.length; r++) {
+            if (r > 0)
+                out.write(',');
+            string(new String(c[r]));
+        }
+        out.write(']');
+    }
+
+    private void string(String s) throws IOException { // a JSON string literal
+        out.write('"');
+        for (int k = 0; k < s.length(); k++) {
+            char c = s.charAt(k);
+            if (c == '"' || c == '\\')
+                out.write('\\');
+            if (c < ' ')
+                out.write(String.format("\\u%04x", (int) c));
+            else
+                out.write(c);
+        }
+        out.write('"');
+    }
+
+    private void csv(int i, char[][] problem, char[][] solution, String status, long nodesVisited, long time,
+                     int presolved, long solutions, Boolean exact,
+                     String[] details) throws IOException { // the columns are those of the first puzzle
+        if (!headerWritten) {
+            out.write("puzzle,rows,cols,solved,status,nodes,time_ns" + (presolved >= 0 ? ",presolved" : "")
+                    + (solutions >= 0 ? ",solutions,exact" : ""));
+            for (int k = 0; k < details.length; k += 2)
+                out.write("," + key(details[k]));
+            out.write('\n');
+            headerWritten = true;
+        }
+        out.write((i + 1) + "," + problem.length + "," + problem[0].length + "," + (solution != null) + "," + status
+                + "," + nodesVisited + "," + time + (presolved >= 0 ? "," + presolved : "")
+                + (solutions >= 0 ? "," + solutions + "," + exact : ""));
+        for (int k = 1; k < details.length; k += 2)
+            out.write(",\"" + details[k].replace("\"", "\"\"") + "\"");
+        out.write('\n');
+    }
+
+    private static String key(String name) { // "SAT statistics" becomes sat_statistics
+        return name.toLowerCase().replace(' ', '_');
+    }
+}
@@ -0,0 +1,53 @@
+//Alternate engine: every puzzle is encoded as CNF (cnf_encoding) and solved by the CDCL solver in cdcl_solver,
+//instead of the chronological backtracking of backtrack and forward_checking. Meant for the large grids.
+//The output is the same as the other solvers', "Nodes visited" being the number of decisions the SAT solver made,
+//followed by its other statistics.
+//to run: java sat_backend lightupPuzzles.txt [--output=text|jsonl|csv]
+public class sat_backend {
+
+    public static class statistics {
+        public int variables;
+        public int clauses;
+        public long decisions;
+        public long conflicts;
+        public long propagations;
+        public long restarts;
+
+        public String toString() {
+            return variables + " variables, " + clauses + " clauses, " + decisions + " decisions, " + conflicts
+                    + " conflicts, " + propagations + " propagations, " + restarts + " restarts";
+        }
+    }
+
+    public static void main(String args[]) {
+        puzzle_reader problems = puzzle_reader.open(args[0]);
+        String output = solver_options.get(args, "output", "text");
+        if (!result_writer.isFormat(output)) {
+            System.out.println("Invalid arguements.");
+            return;
+        }
+        result_writer out = result_writer.create(output);
+        int i = 0;
+        for (char[][] problem : problems) {
+            statistics stats = new statistics();
+            long startTime = System.nanoTime();
+            char[][] solution = solve(problem, stats);
+            long time = System.nanoTime() - startTime;
+            out.write(i, problem, solution, stats.decisions, time, null, "SAT statistics", stats.toString());
+            i++;
+        }
+        out.flush();
+    }
+
+    public static char[][] solve(char[][] csp, statistics stats) { // null if unsolvable, like backtrackingSearch
+        cnf_encoding cnf = new cnf_encoding(csp);
+        Boolean satisfiable = cnf.solver.solve();
+        stats.variables = cnf.solver.numVars();
+        stats.clauses = cnf.solver.numClauses();
+        stats.decisions = cnf.solver.decisions;
+        stats.conflicts = cnf.solver.conflicts;
+        stats.propagations = cnf.solver.propagations;
+        stats.restarts = cnf.solver.restarts;
+        return satisfiable ? cnf.decode(csp) : null;
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+//Binary trace of every decision the search makes, written by traced_state and read back by trace_analysis.
+//Events are a tag byte followed by unsigned varints (7 bits per byte, low bits first), so most take 2-4 bytes:
+//  BEGIN      rows, cols                 a puzzle starts
+//  BULB/EMPTY cell, depth                the search assigns 'b' / 'n' to a packed cell, depth is the trail length
+//                                        before the assignment
+//  REJECT+r                              the last assignment failed check r (solve_metrics.REASONS order)
+//  BACK       depth                      the trail is undone to depth
+//  END        solved (0/1), nodes        the puzzle is done
+//The file starts with "LUPT" and a version byte. Events are collected in a direct buffer and written to the file
+//channel a megabyte at a time.
+//to record: java forward_checking 48W.txt H3 --trace=48W.trace, to analyse: java trace_analysis 48W.trace
+public class search_trace {
+
+    public static final byte[] MAGIC = { 'L', 'U', 'P', 'T' };
+    public static final int VERSION = 1;
+
+    public static final int BEGIN = 1;
+    public static final int BULB = 2;
+    public static final int EMPTY = 3;
+    public static final int BACK = 4;
+    public static final int END = 5;
+    public static final int REJECT = 8; // REJECT + reason
+
+    private static final int BUFFER = 1 << 20;
+    private static final int LARGEST_EVENT = 1 + 2 * 10; // a tag and two varints
+
+    private final FileChannel out;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER);
+
+    private search_trace(FileChannel out) {
+        this.out = out;
+        buffer.put(MAGIC).put((byte) VERSION);
+    }
+
+    public static search_trace create(String fileName) throws IOException {
+        return new search_trace(FileChannel.open(Path.of(fileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    public void begin(char[][] csp) {
+        event(BEGIN, csp.length, csp[0].length);
+    }
+
+    public void assign(int cell, char value, int depth) {
+        event(value == 'b' ? BULB : EMPTY, cell, depth);
+    }
+
+    public void reject(int reason) {
+        room();
+        buffer.put((byte) (REJECT + reason));
+    }
+
+    public void back(int depth) {
+        room();
+        buffer.put((byte) BACK);
+        varint(depth);
+    }
+
+    public void end(char[][] solution, int nodes) {
+        event(END, solution != null ? 1 : 0, nodes);
+    }
+
+    public void close() { // writes out what is left
+        try {
+            drain();
+            out.close();
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+
+    private void event(int tag, long a, long b) {
+        room();
+        buffer.put((byte) tag);
+        varint(a);
+        varint(b);
+    }
+
+    private void varint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void room() { // the buffer is written out when the largest event might not fit any more
+        if (buffer.remaining() >= LARGEST_EVENT)
+            return;
+        try {
+            drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            out.write(buffer);
+        buffer.clear();
+    }
+
+    public static class reader { // the events of a trace file in order
+        private final DataInputStream in;
+        public int tag;  // of the last event read
+        public long a;   // its fields, in the order listed above
+        public long b;
+
+        public reader(String fileName) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Path.of(fileName)), 1 << 16));
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            int version = in.read();
+            if (!Arrays.equals(magic, MAGIC) || version != VERSION)
+                throw new IllegalStateException(fileName + " is not a version " + VERSION + " search trace");
+        }
+
+        public Boolean next() throws IOException { // false at the end of the file
+            int t = in.read();
+            if (t < 0) {
+                in.close();
+                return false;
+            }
+            tag = t;
+            if (tag == BEGIN || tag == BULB || tag == EMPTY || tag == END) {
+                a = varint();
+                b = varint();
+            } else if (tag == BACK)
+                a = varint();
+            return true;
+        }
+
+        private long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0;; shift += 7) {
+                int next = in.read();
+                if (next < 0)
+                    throw new EOFException("search trace ends inside an event");
+                value |= (long) (next & 0x7F) << shift;
+                if ((next & 0x80) == 0)
+                    return value;
+            }
+        }
+    }
+}
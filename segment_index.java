@@ -0,0 +1,141 @@
+//One-time preprocessing of a puzzle into row and column segments. A segment is a maximal horizontal or vertical run
+//of open cells between walls (or the border). Every open cell belongs to exactly one horizontal and one vertical
+//segment, a bulb lights exactly the two segments it sits in, and no segment may hold more than one bulb.
+//The index also numbers the walls and lists the walls next to each open cell, so wall constraints can be kept up to
+//date without looking at the grid. Cells are packed as i * cols + j.
+public class segment_index {
+
+    public final int rows;
+    public final int cols;
+
+    public final int[] hSeg; // horizontal segment id of each cell, -1 for walls
+    public final int[] vSeg; // vertical segment id of each cell, -1 for walls
+    public final int hCount;
+    public final int vCount;
+
+    // membership: the cells of horizontal segment s are hCells[hStart[s]] .. hCells[hStart[s + 1] - 1]
+    public final int[] hStart;
+    public final int[] hCells;
+    public final int[] vStart;
+    public final int[] vCells;
+
+    public final int wallCount;
+    public final int[] wallId;    // wall id of each cell, -1 for open cells
+    public final int[] wallValue; // number of bulbs each wall requires
+    public final int[] wallCell;
+    // walls next to open cell c: adjWalls[adjStart[c]] .. adjWalls[adjStart[c + 1] - 1], in the order top, bottom,
+    // left, right (the order the solvers look at them in)
+    public final int[] adjStart;
+    public final int[] adjWalls;
+    // open cells next to wall w: nbrCells[nbrStart[w]] .. nbrCells[nbrStart[w + 1] - 1]
+    public final int[] nbrStart;
+    public final int[] nbrCells;
+
+    public segment_index(char[][] csp) {
+        rows = csp.length;
+        cols = csp[0].length;
+        hSeg = new int[rows * cols];
+        vSeg = new int[rows * cols];
+
+        // horizontal segments are numbered row by row, left to right
+        int count = 0;
+        int open = 0;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++)
+                if (isAWall(csp[i][j]))
+                    hSeg[i * cols + j] = -1;
+                else {
+                    if (j == 0 || isAWall(csp[i][j - 1]))
+                        count++;
+                    hSeg[i * cols + j] = count - 1;
+                    open++;
+                }
+        hCount = count;
+
+        // vertical segments are numbered column by column, top to bottom
+        count = 0;
+        for (int j = 0; j < cols; j++)
+            for (int i = 0; i < rows; i++)
+                if (isAWall(csp[i][j]))
+                    vSeg[i * cols + j] = -1;
+                else {
+                    if (i == 0 || isAWall(csp[i - 1][j]))
+                        count++;
+                    vSeg[i * cols + j] = count - 1;
+                }
+        vCount = count;
+
+        hStart = new int[hCount + 1];
+        hCells = new int[open];
+        vStart = new int[vCount + 1];
+        vCells = new int[open];
+        buildMembership(hSeg, hStart, hCells);
+        buildMembership(vSeg, vStart, vCells);
+
+        wallId = new int[rows * cols];
+        count = 0;
+        for (int cell = 0; cell < rows * cols; cell++)
+            wallId[cell] = hSeg[cell] < 0 ? count++ : -1;
+        wallCount = count;
+        wallValue = new int[wallCount];
+        wallCell = new int[wallCount];
+        for (int cell = 0; cell < rows * cols; cell++)
+            if (wallId[cell] >= 0) {
+                wallValue[wallId[cell]] = csp[cell / cols][cell % cols] - '0';
+                wallCell[wallId[cell]] = cell;
+            }
+
+        adjStart = new int[rows * cols + 1];
+        adjWalls = new int[4 * wallCount];
+        count = 0;
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++) {
+                int cell = i * cols + j;
+                adjStart[cell] = count;
+                if (wallId[cell] >= 0)
+                    continue;
+                if (i - 1 >= 0 && wallId[cell - cols] >= 0)
+                    adjWalls[count++] = wallId[cell - cols];
+                if (i + 1 < rows && wallId[cell + cols] >= 0)
+                    adjWalls[count++] = wallId[cell + cols];
+                if (j - 1 >= 0 && wallId[cell - 1] >= 0)
+                    adjWalls[count++] = wallId[cell - 1];
+                if (j + 1 < cols && wallId[cell + 1] >= 0)
+                    adjWalls[count++] = wallId[cell + 1];
+            }
+        adjStart[rows * cols] = count;
+
+        nbrStart = new int[wallCount + 1];
+        nbrCells = new int[count];
+        for (int k = 0; k < count; k++)
+            nbrStart[adjWalls[k] + 1]++;
+        for (int w = 1; w <= wallCount; w++)
+            nbrStart[w] += nbrStart[w - 1];
+        int[] next = new int[wallCount];
+        System.arraycopy(nbrStart, 0, next, 0, wallCount);
+        for (int cell = 0; cell < rows * cols; cell++)
+            for (int k = adjStart[cell]; k < adjStart[cell + 1]; k++)
+                nbrCells[next[adjWalls[k]]++] = cell;
+    }
+
+    public Boolean isOpen(int cell) {
+        return hSeg[cell] >= 0;
+    }
+
+    private static void buildMembership(int[] seg, int[] start, int[] cells) { // counting sort of cells by segment
+        for (int cell = 0; cell < seg.length; cell++)
+            if (seg[cell] >= 0)
+                start[seg[cell] + 1]++;
+        for (int s = 1; s < start.length; s++)
+            start[s] += start[s - 1];
+        int[] next = new int[start.length];
+        System.arraycopy(start, 0, next, 0, start.length);
+        for (int cell = 0; cell < seg.length; cell++)
+            if (seg[cell] >= 0)
+                cells[next[seg[cell]]++] = cell;
+    }
+
+    private static boolean isAWall(char c) {
+        return c >= '0' && c <= '4';
+    }
+}
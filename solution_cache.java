@@ -0,0 +1,172 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Cache of solved puzzles in front of backtrackingSearch, for feeds with many duplicates and rotated or mirrored
+//copies. A puzzle is looked up by its canonical form: of the 8 rotations and reflections of the grid, the one whose
+//rows read first in text order. A copy of a puzzle in any orientation has the same canonical form, and the stored
+//solution (kept in canonical orientation) is mapped back to the orientation of the puzzle being solved.
+//Unsolvable puzzles are remembered as well. The least recently used entries are dropped beyond the capacity.
+//With a file, the cache is loaded when it is created and written back by save(), in the puzzle_binary format with
+//the canonical puzzles and their solutions (an entry without a solution is an unsolvable puzzle).
+//to run: java forward_checking lightupPuzzles.txt H1 --cache=10000 [--cache-file=solutions.lub]
+public class solution_cache {
+
+    public static class canonical { // a puzzle's cache key and the symmetry that turns the puzzle into it
+        final String key;
+        final int symmetry;
+        final int rows;
+        final int cols;
+
+        canonical(String key, int symmetry, int rows, int cols) {
+            this.key = key;
+            this.symmetry = symmetry;
+            this.rows = rows;
+            this.cols = cols;
+        }
+    }
+
+    public static class cached { // a hit, the solution is null for an unsolvable puzzle
+        public final char[][] solution;
+
+        cached(char[][] solution) {
+            this.solution = solution;
+        }
+    }
+
+    private final String fileName; // null for a cache that is not persisted
+    private final LinkedHashMap<String, char[][]> entries; // canonical key to canonical solution, least recently
+                                                           // used first
+    public long hits = 0;
+    public long misses = 0;
+
+    public solution_cache(int capacity, String fileName) {
+        this.fileName = fileName;
+        entries = new LinkedHashMap<String, char[][]>(16, 0.75f, true) { // access order
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, char[][]> eldest) {
+                return size() > capacity;
+            }
+        };
+        if (fileName != null && Files.exists(Path.of(fileName)))
+            for (puzzle_binary.entry e : puzzle_reader.open(fileName).entries())
+                put(canonicalize(e.puzzle), e.solution);
+    }
+
+    public interface search { // the solver behind the cache
+        char[][] solve(char[][] csp, solve_context context);
+    }
+
+    public char[][] solve(char[][] csp, solve_context context, search solver) { // a hit visits no nodes
+        canonical c = canonicalize(csp);
+        cached hit = get(c);
+        if (hit != null) {
+            context.nodeCount = 0;
+            context.presolved = 0;
+            return hit.solution;
+        }
+        char[][] solution = solver.solve(csp, context);
+        if (!context.hasTimedOut()) // a search that gave up proves nothing
+            put(c, solution);
+        return solution;
+    }
+
+    public static canonical canonicalize(char[][] puzzle) {
+        String best = null;
+        int symmetry = 0;
+        for (int t = 0; t < 8; t++) {
+            String key = key(transform(puzzle, t));
+            if (best == null || key.compareTo(best) < 0) {
+                best = key;
+                symmetry = t;
+            }
+        }
+        return new canonical(best, symmetry, puzzle.length, puzzle[0].length);
+    }
+
+    public synchronized cached get(canonical c) { // null on a miss, the solution in the puzzle's orientation
+        if (!entries.containsKey(c.key)) {
+            misses++;
+            return null;
+        }
+        hits++;
+        char[][] solution = entries.get(c.key);
+        return new cached(solution == null ? null : untransform(solution, c));
+    }
+
+    public synchronized void put(canonical c, char[][] solution) { // solution in the puzzle's orientation
+        entries.put(c.key, solution == null ? null : transform(solution, c.symmetry));
+    }
+
+    public static void finish(solve_context settings, result_writer out) { // saves the cache of a run and reports
+        if (settings.cache == null)                                          // how much it helped
+            return;
+        out.note("Cache hits", settings.cache.hits + " of " + (settings.cache.hits + settings.cache.misses)
+                + " puzzles");
+        try {
+            settings.cache.save();
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+
+    public synchronized void save() throws IOException { // least recently used first, so a reload keeps the order
+        if (fileName == null)
+            return;
+        ArrayList<puzzle_binary.entry> list = new ArrayList<puzzle_binary.entry>(entries.size());
+        for (Map.Entry<String, char[][]> e : entries.entrySet())
+            list.add(new puzzle_binary.entry(parse(e.getKey()), e.getValue()));
+        puzzle_binary.writeFile(fileName, list);
+    }
+
+    // symmetry t: bit 0 mirrors the columns, bit 1 mirrors the rows, bit 2 then swaps rows and columns
+
+    private static char[][] transform(char[][] grid, int t) {
+        int rows = grid.length;
+        int cols = grid[0].length;
+        Boolean swap = (t & 4) != 0;
+        char[][] out = swap ? new char[cols][rows] : new char[rows][cols];
+        for (int i = 0; i < rows; i++)
+            for (int j = 0; j < cols; j++) {
+                int a = (t & 2) != 0 ? rows - 1 - i : i;
+                int b = (t & 1) != 0 ? cols - 1 - j : j;
+                if (swap)
+                    out[b][a] = grid[i][j];
+                else
+                    out[a][b] = grid[i][j];
+            }
+        return out;
+    }
+
+    private static char[][] untransform(char[][] grid, canonical c) { // back to the orientation of c's puzzle
+        char[][] out = new char[c.rows][c.cols];
+        Boolean swap = (c.symmetry & 4) != 0;
+        for (int i = 0; i < c.rows; i++)
+            for (int j = 0; j < c.cols; j++) {
+                int a = (c.symmetry & 2) != 0 ? c.rows - 1 - i : i;
+                int b = (c.symmetry & 1) != 0 ? c.cols - 1 - j : j;
+                out[i][j] = swap ? grid[b][a] : grid[a][b];
+            }
+        return out;
+    }
+
+    private static String key(char[][] grid) { // "rows cols" and the rows, one per line
+        StringBuilder key = new StringBuilder(grid.length * (grid[0].length + 1) + 12);
+        key.append(grid.length).append(' ').append(grid[0].length);
+        for (char[] row : grid)
+            key.append('\n').append(row);
+        return key.toString();
+    }
+
+    private static char[][] parse(String key) { // inverse of key()
+        String[] lines = key.split("\n");
+        char[][] grid = new char[lines.length - 1][];
+        for (int i = 1; i < lines.length; i++)
+            grid[i - 1] = lines[i].toCharArray();
+        return grid;
+    }
+}
@@ -0,0 +1,54 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+//Counts the solutions of a puzzle instead of stopping at the first one, to check that a puzzle has exactly one
+//(--count=unique stops at UNIQUE, the second solution settles it). The search is iterative_search, which carries on
+//after a solution with the next value, so the tree is walked once with the checks, propagation and heuristic of a
+//normal solve. Only the first solution is copied off the board, the others are just counted.
+//With --split, parallel_search cuts the tree into subtrees as usual and every worker counts the solutions of its own
+//into the shared count. Once that reaches the limit the puzzle's stop flag ends every worker.
+//The count is exact when it stays below the limit and no time or node limit ran out, otherwise it is a lower bound.
+//to run: java forward_checking lightupPuzzles.txt H3 --count=unique [--split=4]
+public class solution_counter {
+
+    public static final long UNIQUE = 2; // limit that decides whether a puzzle has a unique solution
+
+    private final long limit;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicReference<char[][]> first = new AtomicReference<char[][]>();
+
+    public solution_counter(long limit) {
+        this.limit = limit;
+    }
+
+    public static char[][] count(solve_context context, board_state state,
+                                 Boolean forwardChecking) { // formatted like backtrackingSearch, the count is left
+        solution_counter counter = new solution_counter(context.countLimit); // in context.solutions
+        counter.countAll(context, state, forwardChecking);
+        return counter.finish(context);
+    }
+
+    public void countAll(solve_context context, board_state state, Boolean forwardChecking) { // every solution that
+        iterative_search search = new iterative_search(context, state, forwardChecking); // extends the board
+        while (search.run(0) == iterative_search.SOLVED)
+            if (!found(context, state))
+                return;
+    }
+
+    public Boolean found(solve_context context, board_state state) { // the board holds a solution, false once the
+        if (first.get() == null)                                      // limit is reached
+            first.compareAndSet(null, state.getAssignment());
+        if (count.incrementAndGet() < limit)
+            return true;
+        context.stop();
+        return false;
+    }
+
+    public char[][] finish(solve_context context) { // the first solution found, null if there is none
+        context.solutions = Math.min(count.get(), limit); // workers can pass the limit together
+        char[][] solution = first.get();
+        if (solution != null)
+            backtrack.formatSolution(solution);
+        return solution;
+    }
+}
@@ -0,0 +1,149 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+//State of a single solve. The recursion in backtrack and forward_checking keeps its settings and counters here instead
+//of in statics, so several puzzles can be solved at the same time on different threads.
+//Solves that work on the same puzzle (see parallel_search and portfolio) share one stop flag, the recursion gives up
+//as soon as it is set.
+//A solve can be limited in wall time (timeLimit) and in nodes (nodeLimit), both start with startLimits(). isStopped()
+//checks both at every node of the recursion, reading the clock only on every CLOCK_CALLS-th call, and sets the stop
+//flag when one runs out, so every search sharing the flag gives up. cancel() does the same from any thread. Either way
+//the solve returns null and status() reports it as timed out instead of unsolvable. The node limit is one budget for
+//the whole solve: the copies made for subtrees or components (--split, --decompose) take their nodes from it
+//BUDGET_NODES at a time.
+public class solve_context {
+
+    public final String heuristic; // H1, H2 or H3
+    public final String board;     // search state implementation, see board_state
+    public int nodeCount = 0;
+    public long seed = 0;          // 0 keeps the usual value order, see order()
+    public boolean propagate = false; // forward_checking maintains arc consistency (board_state.propagate())
+    public boolean presolve = false;  // run the presolve deductions before the search
+    public boolean backjump = false;  // conflict-directed backjumping instead of chronological backtracking
+    public boolean iterative = false; // chronological search on an explicit stack (see iterative_search)
+    public boolean decompose = false; // independent components are searched separately (see decomposition)
+    public solution_cache cache = null; // solutions of earlier puzzles, shared by every copy
+    public ForkJoinPool pool = null;  // the --threads pool decomposition forks large components on, null searches
+                                      // them one after the other on the calling thread
+    public solve_metrics metrics = null; // null unless metrics are collected, a copy gets a child (see merge())
+    public search_trace trace = null;  // null unless the search is recorded, shared by every copy
+    public int presolved = 0;         // cells fixed by presolve
+    public long countLimit = 0;       // solutions counted before the search stops, 0 stops at the first (see
+                                      // solution_counter)
+    public long solutions = 0;        // counted, with a countLimit
+    public long timeLimit = 0;        // nanoseconds per solve, 0 for none
+    public long deadline = 0;         // System.nanoTime() at which the search gives up, 0 for none
+    public long nodeLimit = 0;        // nodes after which the search gives up, 0 for none
+    private volatile boolean timedOut = false; // a limit ran out or the solve was cancelled
+    private AtomicLong budget = null; // nodes left to hand out, shared by the copies of a solve with a nodeLimit
+    private long allowance = 0;       // nodeCount this context may reach with the nodes it took from budget
+    private int clockCalls = 0;       // isStopped() calls since the clock was last read
+    private final AtomicBoolean stopped;
+
+    public static final String SOLVED = "solved";
+    public static final String UNSOLVABLE = "unsolvable";
+    public static final String TIMED_OUT = "timed out";
+
+    private static final int CLOCK_CALLS = 256;  // isStopped() calls per clock reading
+    private static final int BUDGET_NODES = 256; // nodes taken from the budget at a time
+
+    private static final char[] REVERSED = { 'n', 'b' };
+
+    public solve_context(String heuristic, String board) {
+        this(heuristic, board, new AtomicBoolean());
+    }
+
+    public solve_context(String heuristic, String board, AtomicBoolean stopped) {
+        this.heuristic = heuristic;
+        this.board = board;
+        this.stopped = stopped;
+    }
+
+    public solve_context copy(String heuristic, AtomicBoolean stopped) { // same settings, counters start over
+        solve_context copy = new solve_context(heuristic, board, stopped);
+        copy.seed = seed;
+        copy.propagate = propagate;
+        copy.presolve = presolve;
+        copy.backjump = backjump;
+        copy.iterative = iterative;
+        copy.decompose = decompose;
+        copy.cache = cache;
+        copy.pool = pool;
+        copy.metrics = metrics != null ? metrics.child() : null;
+        copy.trace = trace;
+        copy.timeLimit = timeLimit;
+        copy.deadline = deadline;
+        copy.nodeLimit = nodeLimit;
+        copy.budget = budget;
+        copy.countLimit = countLimit;
+        return copy;
+    }
+
+    public void stop() {
+        stopped.set(true);
+    }
+
+    public void cancel() { // safe to call from any thread, the search gives up at its next node
+        timedOut = true;
+        stop();
+    }
+
+    public void startLimits() { // the time limit and the node budget of a solve start now, copies made from here on
+        if (timeLimit > 0)          // share them
+            deadline = System.nanoTime() + timeLimit;
+        if (nodeLimit > 0) {
+            budget = new AtomicLong(nodeLimit);
+            allowance = 0;
+        }
+    }
+
+    public Boolean isStopped() { // sets the stop flag when a limit has run out
+        if (stopped.get())
+            return true;
+        if (budget != null && nodeCount >= allowance && !reserve()
+                || deadline != 0 && ++clockCalls >= CLOCK_CALLS && clockRanOut()) {
+            cancel();
+            return true;
+        }
+        return false;
+    }
+
+    private Boolean reserve() { // takes nodes from the budget until nodeCount is covered, false when it is used up
+        while (nodeCount >= allowance) {
+            long left = budget.getAndAdd(-BUDGET_NODES);
+            if (left <= 0)
+                return false;
+            allowance += Math.min(left, BUDGET_NODES);
+        }
+        return true;
+    }
+
+    private Boolean clockRanOut() {
+        clockCalls = 0;
+        return System.nanoTime() - deadline > 0;
+    }
+
+    public AtomicBoolean stopFlag() { // for searches that have to stop with this one
+        return stopped;
+    }
+
+    public Boolean hasTimedOut() {
+        return timedOut;
+    }
+
+    public String status(char[][] solution) { // the outcome of a solve that returned solution
+        if (solution != null)
+            return SOLVED;
+        return timedOut ? TIMED_OUT : UNSOLVABLE;
+    }
+
+    public char[] order(int var, char[] domain) { // with a seed, the values of some variables are tried 'n' first,
+                                                  // so runs with different seeds explore the tree differently
+        if (seed == 0 || domain.length < 2)
+            return domain;
+        long z = (seed + var) * 0x9E3779B97F4A7C15L;
+        z ^= z >>> 31;
+        return (z & 1) == 0 ? domain : REVERSED;
+    }
+}
@@ -0,0 +1,143 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+//What the search did, per solve and summed over a batch. The counts are collected by metered_state, which wraps the
+//board only when metrics are asked for, so a run without them executes exactly the same code as before.
+//  nodes, backtracks (retreats over an assignment that had passed its checks) and the deepest trail
+//  calls of the three checks and the cells they examined: lighting (done by assign), checkWalls, checkNoBulbs
+//  time in variable selection (H1-H3) and in consistency checking (assign, the checks, domains, propagation),
+//  measured on one call in SAMPLE of each of them and scaled up, so the clock costs next to nothing
+//  failures by reason: a bulb that was already lit, a violated wall, a dark cell nothing can light any more, or a
+//  contradiction found by propagation
+//Every solve_context copy gets a child of its original's metrics. Workers (see parallel_search, decomposition) merge
+//into their puzzle's metrics, and every puzzle merges into the batch's when it is done. The batch is exported as a
+//Prometheus text file, or as CSV (a header and one row) when the file name ends in .csv.
+//to run: java forward_checking lightupPuzzles.txt H3 --metrics=metrics.prom
+public class solve_metrics {
+
+    public static final int LIGHTING = 0;
+    public static final int WALLS = 1;
+    public static final int NO_BULBS = 2;
+    public static final int PROPAGATION = 3; // failures only
+    public static final String[] CHECKS = { "lighting", "walls", "no_bulbs" };
+    public static final String[] REASONS = { "lighting", "walls", "no_bulbs", "propagation" };
+
+    public static final int SAMPLE = 16; // one call in SAMPLE is timed
+
+    public long puzzles = 0;
+    public long solved = 0;
+    public long nodes = 0;
+    public long backtracks = 0;
+    public int maxDepth = 0;
+    public final long[] calls = new long[CHECKS.length];
+    public final long[] cells = new long[CHECKS.length];
+    public long selectTime = 0; // nanoseconds, estimated from the samples
+    public long checkTime = 0;
+    public final long[] failures = new long[REASONS.length];
+
+    private final solve_metrics parent; // null for a batch
+
+    public solve_metrics() {
+        this(null);
+    }
+
+    private solve_metrics(solve_metrics parent) {
+        this.parent = parent;
+    }
+
+    public solve_metrics child() { // for a copy of the context, see merge()
+        return new solve_metrics(this);
+    }
+
+    public void finish(solve_context context, char[][] solution) { // a puzzle is done, its nodes are in the context
+        puzzles++;
+        if (solution != null)
+            solved++;
+        nodes += context.nodeCount;
+        merge();
+    }
+
+    public void merge() { // adds everything to the parent's counts
+        if (parent != null)
+            parent.add(this);
+    }
+
+    private synchronized void add(solve_metrics other) { // workers of the same puzzle finish concurrently
+        puzzles += other.puzzles;
+        solved += other.solved;
+        nodes += other.nodes;
+        backtracks += other.backtracks;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        for (int k = 0; k < calls.length; k++) {
+            calls[k] += other.calls[k];
+            cells[k] += other.cells[k];
+        }
+        selectTime += other.selectTime;
+        checkTime += other.checkTime;
+        for (int k = 0; k < failures.length; k++)
+            failures[k] += other.failures[k];
+    }
+
+    public void export(String fileName) { // Prometheus text, or CSV for a .csv file
+        try (BufferedWriter out = Files.newBufferedWriter(Path.of(fileName), StandardCharsets.UTF_8)) {
+            if (fileName.endsWith(".csv"))
+                csv(out);
+            else
+                prometheus(out);
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+
+    private synchronized void prometheus(BufferedWriter out) throws IOException {
+        metric(out, "lightup_puzzles_total", "counter", "Puzzles solved or proven unsolvable.", puzzles);
+        metric(out, "lightup_solved_total", "counter", "Puzzles with a solution.", solved);
+        metric(out, "lightup_nodes_total", "counter", "Values tried by the search.", nodes);
+        metric(out, "lightup_backtracks_total", "counter", "Retreats over an assignment that passed its checks.",
+                backtracks);
+        metric(out, "lightup_max_depth", "gauge", "Deepest trail of any puzzle.", maxDepth);
+        header(out, "lightup_check_calls_total", "counter", "Calls of each consistency check.");
+        for (int k = 0; k < CHECKS.length; k++)
+            out.write("lightup_check_calls_total{check=\"" + CHECKS[k] + "\"} " + calls[k] + "\n");
+        header(out, "lightup_check_cells_total", "counter", "Cells examined by each consistency check.");
+        for (int k = 0; k < CHECKS.length; k++)
+            out.write("lightup_check_cells_total{check=\"" + CHECKS[k] + "\"} " + cells[k] + "\n");
+        header(out, "lightup_seconds_total", "counter", "Time spent in each phase of the search (sampled).");
+        out.write("lightup_seconds_total{phase=\"select\"} " + selectTime / 1e9 + "\n");
+        out.write("lightup_seconds_total{phase=\"check\"} " + checkTime / 1e9 + "\n");
+        header(out, "lightup_failures_total", "counter", "Rejected values by reason.");
+        for (int k = 0; k < REASONS.length; k++)
+            out.write("lightup_failures_total{reason=\"" + REASONS[k] + "\"} " + failures[k] + "\n");
+    }
+
+    private static void metric(BufferedWriter out, String name, String type, String help, long value)
+            throws IOException {
+        header(out, name, type, help);
+        out.write(name + " " + value + "\n");
+    }
+
+    private static void header(BufferedWriter out, String name, String type, String help) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n# TYPE " + name + " " + type + "\n");
+    }
+
+    private synchronized void csv(BufferedWriter out) throws IOException {
+        StringBuilder names = new StringBuilder("puzzles,solved,nodes,backtracks,max_depth");
+        StringBuilder values = new StringBuilder(puzzles + "," + solved + "," + nodes + "," + backtracks + ","
+                + maxDepth);
+        for (int k = 0; k < CHECKS.length; k++) {
+            names.append(',').append(CHECKS[k]).append("_calls,").append(CHECKS[k]).append("_cells");
+            values.append(',').append(calls[k]).append(',').append(cells[k]);
+        }
+        names.append(",select_ns,check_ns");
+        values.append(',').append(selectTime).append(',').append(checkTime);
+        for (int k = 0; k < REASONS.length; k++) {
+            names.append(",fail_").append(REASONS[k]);
+            values.append(',').append(failures[k]);
+        }
+        out.write(names + "\n" + values + "\n");
+    }
+}
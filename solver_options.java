@@ -0,0 +1,12 @@
+//Optional command line settings shared by the solvers. They follow the puzzle file and heuristic, e.g.
+//  java backtrack lightupPuzzles.txt H1 --board=bits
+public class solver_options {
+
+    public static String get(String[] args, String name, String defaultValue) { // value of --name=value, if given
+        String prefix = "--" + name + "=";
+        for (int i = 1; i < args.length; i++) // a heuristic never starts with --
+            if (args[i].startsWith(prefix))
+                return args[i].substring(prefix.length());
+        return defaultValue;
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+//Offline analysis of a search_trace. The trace is replayed with a stack of the open decisions, each closed by the
+//BACK that undoes it. A decision that passed its checks but was undone anyway was refuted by the subtree below it,
+//and the nodes of that subtree are what the choice cost. The report has:
+//  every puzzle with its size, result and nodes
+//  heuristic quality per depth (decisions made by the search, not the trail): how many decisions were rejected
+//  straight away by a check, how many were refuted only below, and how many nodes a refuted subtree took on average.
+//  A good variable order fails early and cheaply, so the refuted subtrees stay small. Deep searches are grouped into
+//  at most DEPTH_ROWS ranges of depths.
+//  the hot subtrees: the refuted decisions with the most nodes below them. A decision that is the only refuted one
+//  its parent tried is reported through the parent, so a chain of forced choices shows up once, at its top.
+//  repeated failures: the values rejected most often, with the check that rejected them
+//to run: java trace_analysis 48W.trace [--top=10]
+public class trace_analysis {
+
+    private static final int DEPTH_ROWS = 50;
+
+    private int puzzle = 0;             // current puzzle, from 1
+    private long nodes = 0;             // of the current puzzle
+    private long totalNodes = 0;
+    private final ArrayList<String> puzzles = new ArrayList<String>();
+    private final ArrayList<Integer> widths = new ArrayList<Integer>(); // columns of each puzzle
+
+    private int open = 0;               // the stack of open decisions
+    private int[] cell = new int[64];
+    private char[] value = new char[64];
+    private int[] trailDepth = new int[64];
+    private long[] nodeStart = new long[64];
+    private boolean[] rejected = new boolean[64];
+    private int[] refutedChildren = new int[64];
+    private long[][] onlyChild = new long[64][]; // the first refuted child, reported once there is a second one
+
+    private long[] decisions = new long[64]; // per decision depth
+    private long[] rejections = new long[64];
+    private long[] refutations = new long[64];
+    private long[] refutedNodes = new long[64];
+    private int deepest = -1;
+
+    private final int top;
+    private final PriorityQueue<long[]> hot; // { nodes, puzzle, depth, cell, value }, smallest first
+    private final HashMap<String, Long> failures = new HashMap<String, Long>();
+    private final long[] reasons = new long[solve_metrics.REASONS.length];
+
+    private trace_analysis(int top) {
+        this.top = top;
+        hot = new PriorityQueue<long[]>(top + 1, (x, y) -> Long.compare(x[0], y[0]));
+    }
+
+    public static void main(String args[]) {
+        try {
+            trace_analysis analysis = new trace_analysis(Integer.parseInt(solver_options.get(args, "top", "10")));
+            search_trace.reader trace = new search_trace.reader(args[0]);
+            while (trace.next())
+                analysis.replay(trace);
+            analysis.print();
+        } catch (IOException e) {
+            System.out.println("An error occurred.");
+            e.printStackTrace();
+        }
+    }
+
+    private void replay(search_trace.reader event) {
+        switch (event.tag) {
+            case search_trace.BEGIN:
+                puzzle++;
+                widths.add((int) event.b);
+                nodes = 0;
+                open = 0;
+                puzzles.add(event.a + " x " + event.b);
+                break;
+            case search_trace.BULB:
+            case search_trace.EMPTY:
+                backTo((int) event.b);
+                push((int) event.a, event.tag == search_trace.BULB ? 'b' : 'n', (int) event.b);
+                break;
+            case search_trace.BACK:
+                backTo((int) event.a);
+                break;
+            case search_trace.END: // the decisions still open lead to the solution (or to where the search stopped)
+                while (open > 0)
+                    report(--open);
+                totalNodes += nodes;
+                puzzles.set(puzzle - 1, puzzles.get(puzzle - 1) + ", " + (event.a != 0 ? "solved" : "unsolvable")
+                        + ", " + nodes + " nodes");
+                break;
+            default: // a rejection of the newest decision, or of the puzzle itself before the first one
+                int reason = event.tag - search_trace.REJECT;
+                reasons[reason]++;
+                if (open == 0)
+                    break;
+                rejected[open - 1] = true;
+                rejections[open - 1]++;
+                failures.merge(puzzle + "," + cell[open - 1] + "," + value[open - 1] + "," + reason, 1L, Long::sum);
+        }
+    }
+
+    private void push(int c, char v, int depth) {
+        if (open == cell.length) {
+            cell = Arrays.copyOf(cell, open * 2);
+            value = Arrays.copyOf(value, open * 2);
+            trailDepth = Arrays.copyOf(trailDepth, open * 2);
+            nodeStart = Arrays.copyOf(nodeStart, open * 2);
+            rejected = Arrays.copyOf(rejected, open * 2);
+            refutedChildren = Arrays.copyOf(refutedChildren, open * 2);
+            onlyChild = Arrays.copyOf(onlyChild, open * 2);
+        }
+        if (open == decisions.length) {
+            decisions = Arrays.copyOf(decisions, open * 2);
+            rejections = Arrays.copyOf(rejections, open * 2);
+            refutations = Arrays.copyOf(refutations, open * 2);
+            refutedNodes = Arrays.copyOf(refutedNodes, open * 2);
+        }
+        nodes++;
+        decisions[open]++;
+        deepest = Math.max(deepest, open);
+        cell[open] = c;
+        value[open] = v;
+        trailDepth[open] = depth;
+        nodeStart[open] = nodes;
+        rejected[open] = false;
+        refutedChildren[open] = 0;
+        onlyChild[open] = null;
+        open++;
+    }
+
+    private void backTo(int depth) { // closes the decisions the trail no longer holds
+        while (open > 0 && trailDepth[open - 1] >= depth) {
+            open--;
+            if (rejected[open])
+                continue;
+            long size = nodes - nodeStart[open];
+            refutations[open]++;
+            refutedNodes[open] += size;
+            onlyChild[open] = null; // superseded by this decision
+            long[] subtree = { size, puzzle, open, cell[open], value[open] };
+            if (open > 0 && ++refutedChildren[open - 1] == 1)
+                onlyChild[open - 1] = subtree;
+            else {
+                if (open > 0)
+                    report(open - 1); // a second refuted child, the first one counts on its own
+                hot(subtree);
+            }
+        }
+    }
+
+    private void report(int parent) { // the deferred child of a decision that did not turn out to be refuted
+        if (onlyChild[parent] != null)
+            hot(onlyChild[parent]);
+        onlyChild[parent] = null;
+    }
+
+    private void hot(long[] subtree) {
+        hot.add(subtree);
+        if (hot.size() > top)
+            hot.poll();
+    }
+
+    private void print() {
+        System.out.println("Trace:\n" + puzzles.size() + " puzzles, " + totalNodes + " nodes\n");
+        for (int p = 0; p < puzzles.size(); p++)
+            System.out.println("Puzzle " + (p + 1) + ": " + puzzles.get(p));
+
+        System.out.println("\nHeuristic quality per depth (decisions, rejected by a check, refuted below, nodes per "
+                + "refuted subtree):");
+        int band = Math.max(1, (deepest + DEPTH_ROWS) / DEPTH_ROWS);
+        for (int from = 0; from <= deepest; from += band) {
+            long made = 0, rejectedHere = 0, refuted = 0, refutedSize = 0;
+            for (int d = from; d < from + band && d <= deepest; d++) {
+                made += decisions[d];
+                rejectedHere += rejections[d];
+                refuted += refutations[d];
+                refutedSize += refutedNodes[d];
+            }
+            if (made == 0)
+                continue;
+            System.out.println("depth " + (band == 1 ? "" + from : from + "-" + Math.min(from + band - 1, deepest))
+                    + ": " + made + " decisions, " + percent(rejectedHere, made) + " rejected, "
+                    + percent(refuted, made) + " refuted, "
+                    + (refuted > 0 ? String.format("%.1f", (double) refutedSize / refuted) : "-") + " nodes");
+        }
+
+        System.out.println("\nFailed checks:");
+        for (int r = 0; r < reasons.length; r++)
+            System.out.println(solve_metrics.REASONS[r] + ": " + reasons[r]);
+
+        System.out.println("\nHot subtrees (refuted decisions with the most nodes below them):");
+        ArrayList<long[]> hottest = new ArrayList<long[]>(hot);
+        hottest.sort((x, y) -> Long.compare(y[0], x[0]));
+        for (long[] h : hottest)
+            System.out.println("puzzle " + h[1] + ", depth " + h[2] + ", " + cellName((int) h[3], widths.get((int) h[1] - 1)) + "="
+                    + (char) h[4] + ": " + h[0] + " nodes");
+
+        System.out.println("\nRepeated failures (values rejected most often):");
+        ArrayList<Map.Entry<String, Long>> repeated = new ArrayList<Map.Entry<String, Long>>(failures.entrySet());
+        repeated.sort((x, y) -> Long.compare(y.getValue(), x.getValue()));
+        for (int k = 0; k < Math.min(top, repeated.size()); k++) {
+            String[] key = repeated.get(k).getKey().split(",");
+            System.out.println("puzzle " + key[0] + ", " + cellName(Integer.parseInt(key[1]),
+                    widths.get(Integer.parseInt(key[0]) - 1))
+                    + "=" + key[2] + " rejected by " + solve_metrics.REASONS[Integer.parseInt(key[3])] + ": "
+                    + repeated.get(k).getValue() + " times");
+        }
+    }
+
+    private static String cellName(int cell, int cols) {
+        return "(" + cell / cols + "," + cell % cols + ")";
+    }
+
+    private static String percent(long part, long whole) {
+        return String.format("%.1f%%", 100.0 * part / whole);
+    }
+}
@@ -0,0 +1,57 @@
+//Board that records what the search asks of another board in a search_trace: every value assigned, the check that
+//rejected it if one did, and every undo. Calls are passed on unchanged (see board_wrapper).
+public class traced_state extends board_wrapper {
+
+    private final search_trace trace;
+
+    public traced_state(board_state board, search_trace trace) {
+        super(board);
+        this.trace = trace;
+    }
+
+    @Override
+    public Boolean assign(int cell, char value) {
+        trace.assign(cell, value, board.getDepth());
+        Boolean consistent = board.assign(cell, value);
+        if (!consistent)
+            trace.reject(solve_metrics.LIGHTING);
+        return consistent;
+    }
+
+    @Override
+    public void undo() {
+        board.undo();
+        trace.back(board.getDepth());
+    }
+
+    @Override
+    public void undoTo(int depth) {
+        if (board.getDepth() > depth)
+            trace.back(depth);
+        board.undoTo(depth);
+    }
+
+    @Override
+    public Boolean propagate() {
+        Boolean consistent = board.propagate();
+        if (!consistent)
+            trace.reject(solve_metrics.PROPAGATION);
+        return consistent;
+    }
+
+    @Override
+    public Boolean checkWalls() {
+        Boolean consistent = board.checkWalls();
+        if (!consistent)
+            trace.reject(solve_metrics.WALLS);
+        return consistent;
+    }
+
+    @Override
+    public Boolean checkNoBulbs() {
+        Boolean consistent = board.checkNoBulbs();
+        if (!consistent)
+            trace.reject(solve_metrics.NO_BULBS);
+        return consistent;
+    }
+}
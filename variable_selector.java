@@ -0,0 +1,113 @@
+//Buckets of unassigned variables for H1, H2 and H3, so choosing the next variable does not rescan the grid.
+//Each unassigned cell sits in the bucket of its degree, and cells with a single option also sit in a second family of
+//buckets by degree. Buckets are bitsets over packed cells, so the first (row-major) cell of a bucket is found with a
+//few word scans, which keeps the tie-breaking of the original heuristics. Non-empty buckets are tracked in a bitset
+//as well, so the highest degree is found without walking empty buckets.
+//The owner (lighting_state) calls set() or remove() whenever the degree or options of a cell may have changed.
+public class variable_selector {
+
+    private final int words;          // longs per bucket
+    private final int buckets;        // possible degrees, 0 .. buckets - 1
+
+    private final long[] open;        // every unassigned cell
+    private final long[] single;      // unassigned cells with a single option
+    private int singleCount = 0;
+
+    private final long[] byDegree;    // bucket d is byDegree[d * words] .. byDegree[d * words + words - 1]
+    private final long[] singleByDegree;
+    private final int[] degreeCount;
+    private final int[] singleDegreeCount;
+    private final long[] degreeNonEmpty;
+    private final long[] singleDegreeNonEmpty;
+
+    private final int[] degree;       // current degree of each cell, -1 if it is not in the buckets
+    private final boolean[] isSingle;
+
+    public variable_selector(int cells, int maxDegree) {
+        words = (cells + 63) >>> 6;
+        buckets = maxDegree + 1;
+        open = new long[words];
+        single = new long[words];
+        byDegree = new long[buckets * words];
+        singleByDegree = new long[buckets * words];
+        degreeCount = new int[buckets];
+        singleDegreeCount = new int[buckets];
+        degreeNonEmpty = new long[(buckets + 63) >>> 6];
+        singleDegreeNonEmpty = new long[(buckets + 63) >>> 6];
+        degree = new int[cells];
+        isSingle = new boolean[cells];
+        java.util.Arrays.fill(degree, -1);
+    }
+
+    public void set(int cell, int newDegree, boolean newSingle) { // inserts the cell, or moves it to its new buckets
+        if (degree[cell] == newDegree && isSingle[cell] == newSingle)
+            return;
+        remove(cell);
+        degree[cell] = newDegree;
+        isSingle[cell] = newSingle;
+        long bit = 1L << cell;
+        int w = cell >>> 6;
+        open[w] |= bit;
+        byDegree[newDegree * words + w] |= bit;
+        if (degreeCount[newDegree]++ == 0)
+            degreeNonEmpty[newDegree >>> 6] |= 1L << newDegree;
+        if (newSingle) {
+            single[w] |= bit;
+            singleCount++;
+            singleByDegree[newDegree * words + w] |= bit;
+            if (singleDegreeCount[newDegree]++ == 0)
+                singleDegreeNonEmpty[newDegree >>> 6] |= 1L << newDegree;
+        }
+    }
+
+    public void remove(int cell) {
+        int d = degree[cell];
+        if (d < 0)
+            return;
+        long bit = ~(1L << cell);
+        int w = cell >>> 6;
+        open[w] &= bit;
+        byDegree[d * words + w] &= bit;
+        if (--degreeCount[d] == 0)
+            degreeNonEmpty[d >>> 6] &= ~(1L << d);
+        if (isSingle[cell]) {
+            single[w] &= bit;
+            singleCount--;
+            singleByDegree[d * words + w] &= bit;
+            if (--singleDegreeCount[d] == 0)
+                singleDegreeNonEmpty[d >>> 6] &= ~(1L << d);
+        }
+        degree[cell] = -1;
+        isSingle[cell] = false;
+    }
+
+    public int H1() { // first cell with a single option, otherwise the first unassigned cell
+        int cell = first(single, 0);
+        return cell >= 0 ? cell : first(open, 0);
+    }
+
+    public int H2() { // first cell of the highest degree
+        int d = highest(degreeNonEmpty);
+        return d < 0 ? -1 : first(byDegree, d * words);
+    }
+
+    public int H3() { // first single option cell of the highest degree, otherwise the same as H2
+        if (singleCount == 0)
+            return H2();
+        return first(singleByDegree, highest(singleDegreeNonEmpty) * words);
+    }
+
+    private int first(long[] bits, int base) {
+        for (int w = 0; w < words; w++)
+            if (bits[base + w] != 0)
+                return (w << 6) + Long.numberOfTrailingZeros(bits[base + w]);
+        return -1;
+    }
+
+    private static int highest(long[] bits) {
+        for (int w = bits.length - 1; w >= 0; w--)
+            if (bits[w] != 0)
+                return (w << 6) + 63 - Long.numberOfLeadingZeros(bits[w]);
+        return -1;
+    }
+}